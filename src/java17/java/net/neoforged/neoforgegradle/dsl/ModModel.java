@@ -5,6 +5,7 @@ import org.gradle.api.Named;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 
@@ -23,6 +24,7 @@ public abstract class ModModel implements Named {
         // TODO: We could potentially do a bit of name validation
         getModSourceSets().convention(List.of());
         getModSourceSets().finalizeValueOnRead();
+        getScanIndex().convention(false);
     }
 
     @Inject
@@ -44,6 +46,12 @@ public abstract class ModModel implements Named {
     // Do not name getSourceSets or it will conflict with project.sourceSets in scripts.
     public abstract ListProperty<SourceSet> getModSourceSets();
 
+    /**
+     * Adds an index of the annotations in the classes of this mod's source sets to their output,
+     * so that it is part of the mod folders of runs and of the built jars.
+     */
+    public abstract Property<Boolean> getScanIndex();
+
     public void sourceSet(SourceSet sourceSet) {
         sourceSet(sourceSet, getProject());
     }
@@ -2,6 +2,7 @@ package net.neoforged.neoforgegradle.dsl;
 
 import net.neoforged.neoforgegradle.internal.utils.StringUtils;
 import org.gradle.api.Named;
+import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Configuration;
 import org.gradle.api.artifacts.dsl.Dependencies;
@@ -23,7 +24,10 @@ public abstract class RunModel implements Named, Dependencies {
      */
     private final String baseName;
 
-    private final Configuration configuration;
+    /**
+     * Only realized when a build actually needs the runtime classpath of this run.
+     */
+    private final NamedDomainObjectProvider<Configuration> configuration;
 
     @Inject
     public RunModel(String name, Project project) {
@@ -32,8 +36,16 @@ public abstract class RunModel implements Named, Dependencies {
         getMods().convention(project.getExtensions().getByType(NeoForgeExtension.class).getMods());
 
         getGameDirectory().convention(project.getLayout().getProjectDirectory().dir("run"));
-
-        configuration = project.getConfigurations().create(nameOf("", "additionalRuntimeClasspath"), configuration -> {
+        getClassDataSharing().convention(false);
+        getUseRuntimeImage().convention(false);
+        getLoggingProfile().convention("default");
+        getStartupReport().convention(false);
+        getTickTelemetry().convention(false);
+        getHotswap().convention(false);
+        getExtractNestedJars().convention(false);
+        getClasspathIndex().convention(false);
+
+        configuration = project.getConfigurations().register(nameOf("", "additionalRuntimeClasspath"), configuration -> {
             configuration.setCanBeResolved(false);
             configuration.setCanBeConsumed(false);
         });
@@ -52,6 +64,12 @@ public abstract class RunModel implements Named, Dependencies {
         getSystemProperties().put(key, value);
     }
 
+    public abstract ListProperty<String> getJvmArguments();
+
+    public void jvmArgument(String arg) {
+        getJvmArguments().add(arg);
+    }
+
     public abstract ListProperty<String> getProgramArguments();
 
     public void programArgument(String arg) {
@@ -60,6 +78,89 @@ public abstract class RunModel implements Named, Dependencies {
 
     public abstract SetProperty<ModModel> getMods();
 
+    /**
+     * The logging configuration used for the game:
+     * <ul>
+     *     <li>{@code default}: debug output on the console and in {@code logs/debug.log}</li>
+     *     <li>{@code fast}: info output only, written asynchronously and without a debug log, to keep logging out of frame and tick time</li>
+     *     <li>{@code diagnostic}: additionally writes trace output to {@code logs/debug.log}</li>
+     * </ul>
+     */
+    public abstract Property<String> getLoggingProfile();
+
+    /**
+     * Selects heap size, garbage collector and JIT options for the game based on the cores and memory of the machine
+     * it runs on:
+     * <ul>
+     *     <li>{@code low-latency}: short GC pauses for smooth frame and tick times</li>
+     *     <li>{@code throughput}: maximum overall throughput</li>
+     *     <li>{@code low-memory}: smallest memory footprint</li>
+     * </ul>
+     * Arguments added via {@link #jvmArgument(String)} come after the preset, so they override its options.
+     * If they select a garbage collector, the collector options of the preset are omitted.
+     */
+    public abstract Property<String> getPerformanceProfile();
+
+    /**
+     * Enables a dynamic class data sharing (CDS) archive for this run.
+     * The archive is recorded on the first launch and reused by later launches to speed up startup.
+     * It is recreated automatically whenever the module path, the legacy classpath or the JVM changes.
+     * Requires Java 19 or newer to run the game.
+     */
+    public abstract Property<Boolean> getClassDataSharing();
+
+    /**
+     * Runs the game on a custom runtime image that has the bootstrap modules linked into it, instead of
+     * passing them on the module path. The image is created with jlink from the project's Java toolchain,
+     * which must include jmods.
+     * <p>
+     * The args-file of such a run targets the runtime image, which is found in {@code build/moddev/runtimeImage}.
+     * To launch it from the IDE, the run configuration has to use that image as its JRE.
+     */
+    public abstract Property<Boolean> getUseRuntimeImage();
+
+    /**
+     * Records how long the phases of the game's startup take (bootstrap, mod discovery, class scanning, module layer
+     * creation, registry setup, until the server is ready or the client finished loading resources).
+     * After the game was launched through Gradle, the breakdown is written to {@code build/moddev/<run>-startup.json}.
+     * For launches from the IDE, run the {@code <run>StartupReport} task afterwards.
+     */
+    public abstract Property<Boolean> getStartupReport();
+
+    /**
+     * Records server tick times and client frame rates using Minecraft's built-in profiler, which writes its recording
+     * to {@code debug/profiling} in the game directory when the game stops.
+     * After the game was launched through Gradle, percentiles and the stacks of the slowest ticks are written to
+     * {@code build/moddev/<run>-ticks.txt}. For launches from the IDE, run the {@code <run>TickReport} task afterwards.
+     * <p>
+     * Only supported for runs of type {@code client}, {@code server} and {@code gameTestServer}.
+     */
+    public abstract Property<Boolean> getTickTelemetry();
+
+    /**
+     * Runs the game on the JetBrains Runtime with enhanced class redefinition and HotswapAgent, which allows changes to
+     * the structure of mod classes (new methods, fields or classes) to be applied without a restart.
+     * <p>
+     * While the game is running through Gradle, compiling a mod pushes the changed classes into the game.
+     * The {@code <run>Hotswap} task does the same on demand. When launching from the IDE, select a JetBrains Runtime as
+     * the JRE of the run configuration and use the debugger's "reload changed classes" instead.
+     */
+    public abstract Property<Boolean> getHotswap();
+
+    /**
+     * Extracts the jars nested in mod dependencies into a cache in the Gradle user home, and puts them directly on
+     * the classpath of this run, so that FML does not have to open them on every launch. Only applies to launches
+     * through Gradle.
+     */
+    public abstract Property<Boolean> getExtractNestedJars();
+
+    /**
+     * Writes an index of the packages in each entry of the legacy classpath, and passes it to the game via the
+     * {@code legacyClassPath.index} system property. Creating the index has to open every jar once,
+     * so it is only worth enabling with a loader that uses it.
+     */
+    public abstract Property<Boolean> getClasspathIndex();
+
     public abstract Property<String> getType();
 
     public void client() {
@@ -75,7 +176,7 @@ public abstract class RunModel implements Named, Dependencies {
     }
 
     public Configuration getAdditionalRuntimeClasspathConfiguration() {
-        return configuration;
+        return configuration.get();
     }
 
     public abstract DependencyCollector getAdditionalRuntimeClasspath();
@@ -0,0 +1,316 @@
+package net.neoforged.neoforgegradle.internal;
+
+import com.google.gson.GsonBuilder;
+import net.neoforged.neoforgegradle.internal.utils.FileUtils;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.CommandLineArgumentProvider;
+import org.gradle.work.DisableCachingByDefault;
+import org.jetbrains.annotations.Nullable;
+
+import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Launches the dedicated server repeatedly in a fresh game directory, and measures how long it takes until it is
+ * ready to accept players, and how much memory it used up to that point.
+ */
+@DisableCachingByDefault(because = "Measures the machine it runs on")
+public abstract class BenchmarkServerStartupTask extends DefaultTask {
+    /**
+     * Logged by the dedicated server once it accepts connections.
+     */
+    private static final String READY_MESSAGE = "Done (";
+
+    @Inject
+    public BenchmarkServerStartupTask() {
+        getIterations().convention(5);
+        getTimeout().convention(Duration.ofMinutes(5));
+        getAcceptEula().convention(false);
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /**
+     * How often the server is started.
+     */
+    @Input
+    public abstract Property<Integer> getIterations();
+
+    /**
+     * If set, the game directory of each launch starts out as a copy of this directory, i.e. to start from an
+     * existing world or configuration. Otherwise each launch starts with an empty game directory.
+     */
+    @InputFiles
+    @Optional
+    public abstract DirectoryProperty getTemplateDirectory();
+
+    /**
+     * Writes an {@code eula.txt} into the game directory, accepting the
+     * <a href="https://aka.ms/MinecraftEULA">Minecraft EULA</a>. Otherwise, the template directory has to contain it.
+     */
+    @Input
+    public abstract Property<Boolean> getAcceptEula();
+
+    /**
+     * The task fails if the median time until the server is ready exceeds this.
+     */
+    @Input
+    @Optional
+    public abstract Property<Duration> getTimeToReadyBudget();
+
+    /**
+     * The task fails if the median peak resident set size, in MiB, exceeds this. Only measured on Linux.
+     */
+    @Input
+    @Optional
+    public abstract Property<Long> getPeakRssBudget();
+
+    /**
+     * How long a single launch may take before it is considered hung.
+     */
+    @Input
+    public abstract Property<Duration> getTimeout();
+
+    @Nested
+    abstract Property<JavaLauncher> getJavaLauncher();
+
+    @Classpath
+    @InputFiles
+    abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * The args-file of the server run.
+     */
+    @Internal
+    abstract RegularFileProperty getArgsFile();
+
+    @Nested
+    abstract ListProperty<CommandLineArgumentProvider> getJvmArgumentProviders();
+
+    @Internal
+    abstract DirectoryProperty getWorkDirectory();
+
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @TaskAction
+    public void benchmark() throws IOException, InterruptedException {
+        var workDir = getWorkDirectory().get().getAsFile().toPath();
+        Files.createDirectories(workDir);
+
+        // The classpath and the mod folders are passed via a second args-file, just like the run task passes them
+        var launchArgs = new ArrayList<String>();
+        launchArgs.add("-cp");
+        launchArgs.add(quote(getClasspath().getAsPath()));
+        for (var provider : getJvmArgumentProviders().get()) {
+            for (var arg : provider.asArguments()) {
+                launchArgs.add(arg);
+            }
+        }
+        var launchArgsFile = workDir.resolve("launch.txt");
+        FileUtils.writeLinesSafe(launchArgsFile, launchArgs);
+
+        var command = List.of(
+                getJavaLauncher().get().getExecutablePath().getAsFile().getAbsolutePath(),
+                "@" + launchArgsFile.toAbsolutePath(),
+                "@" + getArgsFile().get().getAsFile().getAbsolutePath(),
+                "--nogui"
+        );
+
+        var samples = new ArrayList<Sample>();
+        int iterations = getIterations().get();
+        for (int i = 1; i <= iterations; i++) {
+            var gameDir = workDir.resolve("game");
+            prepareGameDirectory(gameDir.toFile());
+            var sample = launch(command, gameDir, workDir.resolve("server-" + i + ".log"));
+            getLogger().lifecycle("Server startup {}/{}: ready after {} ms{}", i, iterations, sample.timeToReadyMillis(),
+                    sample.peakRssMb() != null ? ", peak RSS " + sample.peakRssMb() + " MiB" : "");
+            samples.add(sample);
+        }
+
+        var medianTimeToReady = percentile(samples, 50, Sample::timeToReadyMillis);
+        var p95TimeToReady = percentile(samples, 95, Sample::timeToReadyMillis);
+        Long medianPeakRss = null;
+        Long p95PeakRss = null;
+        if (samples.stream().allMatch(s -> s.peakRssMb() != null)) {
+            medianPeakRss = percentile(samples, 50, Sample::peakRssMb);
+            p95PeakRss = percentile(samples, 95, Sample::peakRssMb);
+        }
+
+        var report = new LinkedHashMap<String, Object>();
+        report.put("iterations", iterations);
+        report.put("timeToReadyMillis", Map.of("median", medianTimeToReady, "p95", p95TimeToReady));
+        var peakRss = new LinkedHashMap<String, Object>();
+        peakRss.put("median", medianPeakRss);
+        peakRss.put("p95", p95PeakRss);
+        report.put("peakRssMb", peakRss);
+        report.put("samples", samples);
+        var reportFile = getReportFile().get().getAsFile().toPath();
+        Files.writeString(reportFile, new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(report));
+
+        getLogger().lifecycle("Time to ready: median {} ms, p95 {} ms", medianTimeToReady, p95TimeToReady);
+        if (medianPeakRss != null) {
+            getLogger().lifecycle("Peak RSS: median {} MiB, p95 {} MiB", medianPeakRss, p95PeakRss);
+        }
+
+        var failures = new ArrayList<String>();
+        if (getTimeToReadyBudget().isPresent() && medianTimeToReady > getTimeToReadyBudget().get().toMillis()) {
+            failures.add("median time to ready of " + medianTimeToReady + " ms exceeds the budget of " + getTimeToReadyBudget().get().toMillis() + " ms");
+        }
+        if (getPeakRssBudget().isPresent()) {
+            if (medianPeakRss == null) {
+                getLogger().warn("Peak RSS cannot be measured on this platform. Ignoring its budget.");
+            } else if (medianPeakRss > getPeakRssBudget().get()) {
+                failures.add("median peak RSS of " + medianPeakRss + " MiB exceeds the budget of " + getPeakRssBudget().get() + " MiB");
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new GradleException("Server startup budget exceeded: " + String.join(", ", failures) + ". See " + reportFile);
+        }
+    }
+
+    private void prepareGameDirectory(File gameDir) throws IOException {
+        getFileSystemOperations().delete(spec -> spec.delete(gameDir));
+        if (getTemplateDirectory().isPresent()) {
+            getFileSystemOperations().copy(spec -> {
+                spec.from(getTemplateDirectory());
+                spec.into(gameDir);
+            });
+        }
+        Files.createDirectories(gameDir.toPath());
+
+        var eula = gameDir.toPath().resolve("eula.txt");
+        if (getAcceptEula().get()) {
+            Files.writeString(eula, "eula=true\n");
+        } else if (!Files.exists(eula)) {
+            throw new GradleException("The dedicated server requires the Minecraft EULA to be accepted. Either set acceptEula = true "
+                    + "on this task or provide an eula.txt in the template directory.");
+        }
+    }
+
+    private Sample launch(List<String> command, Path gameDir, Path logFile) throws IOException, InterruptedException {
+        var timeout = getTimeout().get();
+        var start = System.nanoTime();
+        var process = new ProcessBuilder(command)
+                .directory(gameDir.toFile())
+                .redirectErrorStream(true)
+                .start();
+        try {
+            var ready = new CompletableFuture<Long>();
+            var outputReader = new Thread(() -> {
+                try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                     var writer = Files.newBufferedWriter(logFile)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!ready.isDone() && line.contains(READY_MESSAGE)) {
+                            ready.complete(System.nanoTime());
+                        }
+                        writer.write(line);
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    ready.completeExceptionally(new GradleException("The server exited before it was ready. See " + logFile));
+                }
+            }, "server-output");
+            outputReader.setDaemon(true);
+            outputReader.start();
+
+            long readyAt;
+            try {
+                readyAt = ready.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new GradleException("The server did not become ready within " + timeout + ". See " + logFile);
+            } catch (ExecutionException e) {
+                throw new GradleException(e.getCause().getMessage(), e.getCause());
+            }
+            // The high-water mark includes everything the server allocated during startup
+            var peakRssMb = readPeakRssMb(process.pid());
+
+            try (var stdin = process.getOutputStream()) {
+                stdin.write("stop\n".getBytes(StandardCharsets.UTF_8));
+            }
+            if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new GradleException("The server did not stop within " + timeout + ". See " + logFile);
+            }
+            outputReader.join();
+
+            return new Sample(TimeUnit.NANOSECONDS.toMillis(readyAt - start), peakRssMb);
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Reads {@code VmHWM} from procfs, which is only available on Linux.
+     */
+    @Nullable
+    private static Long readPeakRssMb(long pid) {
+        var status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.isReadable(status)) {
+            return null;
+        }
+        try {
+            for (var line : Files.readAllLines(status)) {
+                if (line.startsWith("VmHWM:")) {
+                    var kb = Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+                    return kb / 1024;
+                }
+            }
+        } catch (IOException | NumberFormatException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * Nearest-rank percentile.
+     */
+    private static long percentile(List<Sample> samples, int percentile, ToLongFunction<Sample> value) {
+        var sorted = samples.stream().mapToLong(value).sorted().toArray();
+        var rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static String quote(String arg) {
+        return "\"" + arg.replace("\\", "\\\\") + "\"";
+    }
+
+    private record Sample(long timeToReadyMillis, @Nullable Long peakRssMb) {
+    }
+}
@@ -0,0 +1,171 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the information that FML collects when scanning mod classes directly from a class file: the class hierarchy,
+ * and the annotations on the class, its fields and its methods together with their values.
+ */
+final class ClassFileScanner {
+    private static final int MAGIC = 0xCAFEBABE;
+
+    private final DataInputStream in;
+    private Object[] constantPool;
+
+    private ClassFileScanner(byte[] classFile) {
+        this.in = new DataInputStream(new ByteArrayInputStream(classFile));
+    }
+
+    static ScannedClass scan(byte[] classFile) throws IOException {
+        return new ClassFileScanner(classFile).scan();
+    }
+
+    private ScannedClass scan() throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor version
+        in.readUnsignedShort(); // major version
+        readConstantPool();
+
+        in.readUnsignedShort(); // access flags
+        var className = getClassName(in.readUnsignedShort());
+        var superIndex = in.readUnsignedShort();
+        var superName = superIndex == 0 ? null : getClassName(superIndex);
+        var interfaces = new ArrayList<String>();
+        int interfaceCount = in.readUnsignedShort();
+        for (int i = 0; i < interfaceCount; i++) {
+            interfaces.add(getClassName(in.readUnsignedShort()));
+        }
+
+        var annotations = new ArrayList<ScannedAnnotation>();
+        readMembers(className, "FIELD", annotations);
+        readMembers(className, "METHOD", annotations);
+        readAttributes(className, "TYPE", className, annotations);
+
+        return new ScannedClass(className, superName, interfaces, annotations);
+    }
+
+    private void readConstantPool() throws IOException {
+        int count = in.readUnsignedShort();
+        constantPool = new Object[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1 -> constantPool[i] = in.readUTF();
+                case 3 -> constantPool[i] = in.readInt();
+                case 4 -> constantPool[i] = in.readFloat();
+                case 5 -> constantPool[i++] = in.readLong();
+                case 6 -> constantPool[i++] = in.readDouble();
+                // Class: stored as the index of its name, resolved lazily
+                case 7 -> constantPool[i] = new ClassRef(in.readUnsignedShort());
+                case 8, 16, 19, 20 -> in.readUnsignedShort();
+                case 15 -> {
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                }
+                case 9, 10, 11, 12, 17, 18 -> in.readInt();
+                default -> throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    private void readMembers(String className, String targetType, List<ScannedAnnotation> annotations) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.readUnsignedShort(); // access flags
+            var name = getUtf8(in.readUnsignedShort());
+            var descriptor = getUtf8(in.readUnsignedShort());
+            // Same format as FML: fields by name, methods by name and descriptor
+            var memberName = targetType.equals("METHOD") ? name + descriptor : name;
+            readAttributes(className, targetType, memberName, annotations);
+        }
+    }
+
+    private void readAttributes(String className, String targetType, String memberName, List<ScannedAnnotation> annotations) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            var name = getUtf8(in.readUnsignedShort());
+            int length = in.readInt();
+            if (name.equals("RuntimeVisibleAnnotations") || name.equals("RuntimeInvisibleAnnotations")) {
+                int annotationCount = in.readUnsignedShort();
+                for (int j = 0; j < annotationCount; j++) {
+                    var type = getUtf8(in.readUnsignedShort());
+                    annotations.add(new ScannedAnnotation(type, targetType, className, memberName, readAnnotationValues()));
+                }
+            } else {
+                in.skipNBytes(length);
+            }
+        }
+    }
+
+    private Map<String, Object> readAnnotationValues() throws IOException {
+        var values = new LinkedHashMap<String, Object>();
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            var name = getUtf8(in.readUnsignedShort());
+            values.put(name, readElementValue());
+        }
+        return values;
+    }
+
+    private Object readElementValue() throws IOException {
+        int tag = in.readUnsignedByte();
+        return switch (tag) {
+            case 'B', 'D', 'F', 'I', 'J', 'S', 's' -> constantPool[in.readUnsignedShort()];
+            case 'C' -> String.valueOf((char) (int) (Integer) constantPool[in.readUnsignedShort()]);
+            case 'Z' -> ((Integer) constantPool[in.readUnsignedShort()]) != 0;
+            case 'e' -> {
+                var enumValue = new LinkedHashMap<String, Object>();
+                enumValue.put("enum", getUtf8(in.readUnsignedShort()));
+                enumValue.put("value", getUtf8(in.readUnsignedShort()));
+                yield enumValue;
+            }
+            case 'c' -> Map.of("class", getUtf8(in.readUnsignedShort()));
+            case '@' -> {
+                var annotation = new LinkedHashMap<String, Object>();
+                annotation.put("annotation", getUtf8(in.readUnsignedShort()));
+                annotation.put("values", readAnnotationValues());
+                yield annotation;
+            }
+            case '[' -> {
+                int count = in.readUnsignedShort();
+                var values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    values.add(readElementValue());
+                }
+                yield values;
+            }
+            default -> throw new IOException("Unknown annotation element tag " + (char) tag);
+        };
+    }
+
+    private String getUtf8(int index) {
+        return (String) constantPool[index];
+    }
+
+    private String getClassName(int index) {
+        return getUtf8(((ClassRef) constantPool[index]).nameIndex()).replace('/', '.');
+    }
+
+    private record ClassRef(int nameIndex) {
+    }
+
+    record ScannedClass(String name, @Nullable String superName, List<String> interfaces, List<ScannedAnnotation> annotations) {
+    }
+
+    /**
+     * @param type       Descriptor of the annotation type.
+     * @param targetType {@code TYPE}, {@code FIELD} or {@code METHOD}, like FML's element types.
+     */
+    record ScannedAnnotation(String type, String targetType, String className, String memberName, Map<String, Object> values) {
+    }
+}
@@ -1,11 +1,15 @@
 package net.neoforged.neoforgegradle.internal;
 
 import org.gradle.api.DefaultTask;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.SetProperty;
-import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
 
 import javax.inject.Inject;
 import java.io.FileOutputStream;
@@ -13,8 +17,15 @@ import java.io.IOException;
 import java.util.Properties;
 
 abstract class CreateArtifactManifestTask extends DefaultTask {
-    @Input
-    abstract SetProperty<ArtifactManifestEntry> getNeoForgeModDevArtifacts();
+    /**
+     * The resolved artifacts are only used to derive the Maven coordinates of each file.
+     * Up-to-date checks are based on {@link #getNeoForgeModDevFiles()}.
+     */
+    @Internal
+    abstract SetProperty<ResolvedArtifactResult> getNeoForgeModDevArtifacts();
+
+    @InputFiles
+    abstract ConfigurableFileCollection getNeoForgeModDevFiles();
 
     @OutputFile
     abstract RegularFileProperty getManifestFile();
@@ -28,11 +39,44 @@ abstract class CreateArtifactManifestTask extends DefaultTask {
         var artifactsManifest = new Properties();
 
         for (var artifact : getNeoForgeModDevArtifacts().get()) {
-            artifactsManifest.setProperty(artifact.artifactId(), artifact.file().getAbsolutePath());
+            artifactsManifest.setProperty(guessMavenGav(artifact), artifact.getFile().getAbsolutePath());
         }
 
         try (var out = new FileOutputStream(getManifestFile().get().getAsFile())) {
             artifactsManifest.store(out, "");
         }
     }
+
+    private static String guessMavenGav(ResolvedArtifactResult result) {
+        String artifactId;
+        String ext = "";
+        String classifier = null;
+        if (result.getId() instanceof ModuleComponentArtifactIdentifier moduleId) {
+            var artifact = moduleId.getComponentIdentifier().getModule();
+            var version = moduleId.getComponentIdentifier().getVersion();
+            var expectedBasename = artifact + "-" + version;
+            var filename = result.getFile().getName();
+            var startOfExt = filename.lastIndexOf('.');
+            if (startOfExt != -1) {
+                ext = filename.substring(startOfExt + 1);
+                filename = filename.substring(0, startOfExt);
+            }
+
+            if (filename.startsWith(expectedBasename + "-")) {
+                classifier = filename.substring((expectedBasename + "-").length());
+            }
+            artifactId = moduleId.getComponentIdentifier().getGroup() + ":" + artifact + ":" + version;
+        } else {
+            ext = "jar";
+            artifactId = result.getId().getComponentIdentifier().toString();
+        }
+        String gav = artifactId;
+        if (classifier != null) {
+            gav += ":" + classifier;
+        }
+        if (!"jar".equals(ext)) {
+            gav += "@" + ext;
+        }
+        return gav;
+    }
 }
@@ -0,0 +1,92 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Links the bootstrap modules that are normally passed to the game via {@code -p} into a custom runtime image,
+ * together with all modules of the JDK. The JVM no longer has to locate, resolve and verify these modules
+ * on every launch.
+ */
+@CacheableTask
+abstract class CreateRuntimeImageTask extends DefaultTask {
+    @Inject
+    public CreateRuntimeImageTask() {
+    }
+
+    @Classpath
+    @InputFiles
+    abstract ConfigurableFileCollection getModules();
+
+    /**
+     * The JDK to link the image from. Its jmods are included in the image.
+     */
+    @Nested
+    abstract Property<JavaLauncher> getJavaLauncher();
+
+    @OutputDirectory
+    abstract DirectoryProperty getImageDirectory();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @TaskAction
+    public void createImage() {
+        var javaHome = getJavaLauncher().get().getMetadata().getInstallationPath().getAsFile().toPath();
+        var jmods = javaHome.resolve("jmods");
+        if (!Files.isDirectory(jmods)) {
+            throw new GradleException("The JDK at " + javaHome + " does not contain jmods, which are required to create a runtime image.");
+        }
+        var jlink = javaHome.resolve("bin").resolve(File.separatorChar == '\\' ? "jlink.exe" : "jlink");
+
+        // jlink refuses to write into an existing directory
+        var imageDir = getImageDirectory().get().getAsFile();
+        getFileSystemOperations().delete(spec -> spec.delete(imageDir));
+
+        var modulePath = new ArrayList<String>();
+        modulePath.add(jmods.toAbsolutePath().toString());
+        for (var module : getModules().getFiles()) {
+            modulePath.add(module.getAbsolutePath());
+        }
+
+        try {
+            getExecOperations().exec(execSpec -> {
+                execSpec.executable(jlink.toFile());
+                execSpec.args(
+                        "--module-path", String.join(File.pathSeparator, modulePath),
+                        // Since the JDK modules are on the module path too, this includes the entire JDK
+                        "--add-modules", "ALL-MODULE-PATH",
+                        "--generate-cds-archive",
+                        "--no-header-files",
+                        "--no-man-pages",
+                        "--output", imageDir.getAbsolutePath()
+                );
+            });
+        } catch (Exception e) {
+            throw new GradleException("Failed to link runtime image from modules "
+                                      + getModules().getFiles().stream().map(File::getName).collect(Collectors.joining(", "))
+                                      + ". All modules must be explicit (non-automatic) modules.", e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package net.neoforged.neoforgegradle.internal;
+
+import net.neoforged.jarjar.metadata.ContainedJarMetadata;
+import net.neoforged.jarjar.metadata.MetadataIOHandler;
+import net.neoforged.neoforgegradle.internal.utils.FileUtils;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+import org.jetbrains.annotations.Nullable;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Extracts the jars nested in the jars of a classpath (see {@link net.neoforged.neoforgegradle.internal.jarjar.JarJarTask})
+ * into a content-addressed cache, and writes a classpath that has the nested jars directly on it. The outer jars are
+ * replaced by copies without the nested jars, so that FML does not discover them a second time.
+ * <p>
+ * Like FML, only the highest version of each nested artifact is used.
+ */
+@DisableCachingByDefault(because = "The classpath refers to the shared cache directory")
+abstract class ExtractNestedJarsTask extends DefaultTask {
+    private static final String JARJAR_DIRECTORY = "META-INF/jarjar/";
+    private static final String METADATA_PATH = JARJAR_DIRECTORY + "metadata.json";
+
+    @Inject
+    public ExtractNestedJarsTask() {
+    }
+
+    @Classpath
+    @InputFiles
+    abstract ConfigurableFileCollection getClasspath();
+
+    /**
+     * Shared between builds. Entries are keyed by the content hash of the outer jar and never modified.
+     */
+    @Internal
+    abstract DirectoryProperty getCacheDirectory();
+
+    /**
+     * The resulting classpath, one absolute path per line.
+     */
+    @OutputFile
+    abstract RegularFileProperty getClasspathFile();
+
+    @TaskAction
+    public void extract() throws IOException {
+        var cacheDir = getCacheDirectory().get().getAsFile().toPath();
+
+        var result = new ArrayList<String>();
+        var nestedJars = new LinkedHashMap<String, NestedJar>();
+        for (var file : getClasspath().getFiles()) {
+            if (file.isFile() && file.getName().endsWith(".jar")) {
+                result.add(expand(file.toPath(), cacheDir, nestedJars).toAbsolutePath().toString());
+            } else {
+                result.add(file.getAbsolutePath());
+            }
+        }
+        for (var nestedJar : nestedJars.values()) {
+            result.add(nestedJar.file().toAbsolutePath().toString());
+        }
+
+        FileUtils.writeLinesSafe(getClasspathFile().get().getAsFile().toPath(), result);
+        getLogger().info("Put {} nested jars directly on the classpath", nestedJars.size());
+    }
+
+    /**
+     * @return The jar to use in place of the given one.
+     */
+    private static Path expand(Path jar, Path cacheDir, Map<String, NestedJar> nestedJars) throws IOException {
+        List<ContainedJarMetadata> metadata;
+        try (var zip = new ZipFile(jar.toFile())) {
+            metadata = readMetadata(zip);
+        }
+        if (metadata == null) {
+            return jar;
+        }
+
+        var entry = getCacheEntry(jar, cacheDir);
+        for (var nested : metadata) {
+            var nestedFile = entry.resolve(nested.path());
+            var key = nested.identifier().group() + ":" + nested.identifier().artifact();
+            var candidate = new NestedJar(nested, expand(nestedFile, cacheDir, nestedJars));
+            nestedJars.merge(key, candidate, (a, b) -> NestedJar.HIGHEST_VERSION.compare(a, b) >= 0 ? a : b);
+        }
+        return entry.resolve("thinned.jar");
+    }
+
+    @Nullable
+    private static List<ContainedJarMetadata> readMetadata(ZipFile zip) throws IOException {
+        var metadataEntry = zip.getEntry(METADATA_PATH);
+        if (metadataEntry == null) {
+            return null;
+        }
+        try (var in = zip.getInputStream(metadataEntry)) {
+            var metadata = MetadataIOHandler.fromStream(in).orElse(null);
+            return metadata != null && !metadata.jars().isEmpty() ? metadata.jars() : null;
+        }
+    }
+
+    /**
+     * Creates the cache entry for an outer jar if it does not exist yet. It contains a copy of the jar without
+     * {@code META-INF/jarjar}, and the nested jars at their original paths.
+     */
+    private static Path getCacheEntry(Path jar, Path cacheDir) throws IOException {
+        var entry = cacheDir.resolve(FileUtils.hashFileContent(jar));
+        if (Files.isDirectory(entry)) {
+            return entry;
+        }
+
+        // Write to a temporary directory first, so that an entry is never observed half-written
+        var tempDir = cacheDir.resolve(entry.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        Files.createDirectories(tempDir);
+        try (var zip = new ZipFile(jar.toFile());
+             var thinned = new ZipOutputStream(Files.newOutputStream(tempDir.resolve("thinned.jar")))) {
+            var entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                var zipEntry = entries.nextElement();
+                if (zipEntry.getName().startsWith(JARJAR_DIRECTORY)) {
+                    if (!zipEntry.isDirectory()) {
+                        var target = tempDir.resolve(zipEntry.getName());
+                        Files.createDirectories(target.getParent());
+                        try (var in = zip.getInputStream(zipEntry)) {
+                            Files.copy(in, target);
+                        }
+                    }
+                    continue;
+                }
+                thinned.putNextEntry(new ZipEntry(zipEntry.getName()));
+                try (var in = zip.getInputStream(zipEntry)) {
+                    in.transferTo(thinned);
+                }
+                thinned.closeEntry();
+            }
+        }
+
+        try {
+            Files.move(tempDir, entry, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // Another build created the same entry concurrently
+            deleteRecursively(tempDir);
+        }
+        return entry;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (var stream = Files.walk(directory)) {
+            for (var path : stream.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private record NestedJar(ContainedJarMetadata metadata, Path file) {
+        static final Comparator<NestedJar> HIGHEST_VERSION = (a, b) -> {
+            var versionA = a.metadata().version().artifactVersion();
+            var versionB = b.metadata().version().artifactVersion();
+            if (versionA == null || versionB == null) {
+                return versionA == null ? (versionB == null ? 0 : -1) : 1;
+            }
+            return versionA.compareTo(versionB);
+        };
+    }
+}
@@ -0,0 +1,284 @@
+package net.neoforged.neoforgegradle.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.process.CommandLineArgumentProvider;
+import org.gradle.process.ExecOperations;
+import org.gradle.work.DisableCachingByDefault;
+import org.jetbrains.annotations.Nullable;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the GameTests of a {@code gameTestServer} run, partitioned by test namespace across several server JVMs that
+ * each have their own game directory. The results are written as JUnit XML.
+ * <p>
+ * The time each namespace took is recorded in the work directory, and used to balance the shards of later runs.
+ */
+@DisableCachingByDefault(because = "Runs the game")
+public abstract class GameTestTask extends DefaultTask {
+    /**
+     * Only tests in these namespaces are run by NeoForge's GameTest server.
+     */
+    private static final String ENABLED_NAMESPACES_PROPERTY = "neoforge.enabledGameTestNamespaces";
+    // Logged by Minecraft's LogTestReporter
+    private static final Pattern PASSED = Pattern.compile("(\\S+) passed! \\((\\d+)ms\\)");
+    private static final Pattern FAILED = Pattern.compile("(\\S+) failed! (.*)");
+    private static final Pattern OPTIONAL_FAILED = Pattern.compile("\\(optional\\) (\\S+) failed\\. (.*)");
+    private static final Gson GSON = new Gson();
+
+    @Inject
+    public GameTestTask() {
+        getShards().convention(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    /**
+     * The namespaces to run the tests of. Each namespace is run by exactly one shard.
+     */
+    @Input
+    public abstract ListProperty<String> getNamespaces();
+
+    /**
+     * How many server JVMs to run at the same time.
+     */
+    @Internal
+    public abstract Property<Integer> getShards();
+
+    @Nested
+    abstract Property<JavaLauncher> getJavaLauncher();
+
+    @Classpath
+    @InputFiles
+    abstract ConfigurableFileCollection getClasspath();
+
+    @InputFile
+    @PathSensitive(PathSensitivity.NONE)
+    abstract RegularFileProperty getArgsFile();
+
+    @Nested
+    abstract ListProperty<CommandLineArgumentProvider> getJvmArgumentProviders();
+
+    /**
+     * Holds the game directories and logs of the shards, and the recorded durations.
+     */
+    @Internal
+    abstract DirectoryProperty getWorkDirectory();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getReportsDirectory();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @TaskAction
+    public void runGameTests() throws IOException {
+        var workDir = getWorkDirectory().get().getAsFile().toPath();
+        var reportsDir = getReportsDirectory().get().getAsFile().toPath();
+        getFileSystemOperations().delete(spec -> spec.delete(workDir.resolve("shards").toFile(), reportsDir.toFile()));
+        Files.createDirectories(reportsDir);
+
+        var durationsFile = workDir.resolve("durations.json");
+        var durations = loadDurations(durationsFile);
+        var shards = partition(getNamespaces().get(), getShards().get(), durations);
+
+        var results = new ArrayList<ShardResult>();
+        var executor = Executors.newFixedThreadPool(Math.max(1, shards.size()));
+        try {
+            var futures = new ArrayList<Future<ShardResult>>();
+            for (int i = 0; i < shards.size(); i++) {
+                var shardIndex = i;
+                futures.add(executor.submit(() -> runShard(shardIndex, shards.get(shardIndex), workDir.resolve("shards/" + shardIndex))));
+            }
+            for (var future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while running GameTests", e);
+        } catch (ExecutionException e) {
+            throw new GradleException("Running GameTests failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        int tests = 0;
+        int failures = 0;
+        var crashedShards = new ArrayList<String>();
+        for (var result : results) {
+            writeJUnitReport(reportsDir.resolve("TEST-gameTest-shard" + result.index() + ".xml"), result);
+            tests += result.testCases().size();
+            failures += (int) result.testCases().stream().filter(t -> t.failure() != null && !t.optional()).count();
+            if (result.exitCode() != 0 && result.testCases().stream().noneMatch(t -> t.failure() != null)) {
+                crashedShards.add("shard " + result.index() + " (see " + result.log() + ")");
+            }
+            // Spread the shard's time evenly across its namespaces
+            for (var namespace : result.namespaces()) {
+                durations.put(namespace, result.durationMillis() / result.namespaces().size());
+            }
+        }
+        Files.writeString(durationsFile, GSON.toJson(new TreeMap<>(durations)));
+
+        getLogger().lifecycle("{} GameTests in {} shards, {} failed", tests, results.size(), failures);
+        if (!crashedShards.isEmpty()) {
+            throw new GradleException("GameTest server crashed: " + String.join(", ", crashedShards));
+        }
+        if (failures > 0) {
+            throw new GradleException(failures + " GameTests failed. See the reports in " + reportsDir);
+        }
+    }
+
+    /**
+     * Assigns the namespaces that took longest first, each to the shard with the least total duration so far.
+     * Namespaces without a recorded duration are assumed to take as long as the average namespace.
+     */
+    static List<List<String>> partition(List<String> namespaces, int shardCount, Map<String, Long> durations) {
+        var averageDuration = (long) durations.values().stream().mapToLong(Long::longValue).average().orElse(1);
+        var sorted = new ArrayList<>(namespaces.stream().distinct().sorted().toList());
+        sorted.sort(Comparator.comparingLong((String ns) -> durations.getOrDefault(ns, averageDuration)).reversed());
+
+        var shards = new ArrayList<List<String>>();
+        var totals = new long[Math.max(1, Math.min(shardCount, sorted.size()))];
+        for (int i = 0; i < totals.length; i++) {
+            shards.add(new ArrayList<>());
+        }
+        for (var namespace : sorted) {
+            int smallest = 0;
+            for (int i = 1; i < totals.length; i++) {
+                if (totals[i] < totals[smallest]) {
+                    smallest = i;
+                }
+            }
+            shards.get(smallest).add(namespace);
+            totals[smallest] += durations.getOrDefault(namespace, averageDuration);
+        }
+        shards.removeIf(List::isEmpty);
+        return shards;
+    }
+
+    private ShardResult runShard(int index, List<String> namespaces, Path shardDir) throws IOException {
+        var gameDir = shardDir.resolve("game");
+        Files.createDirectories(gameDir);
+        var log = shardDir.resolve("server.log");
+
+        // The run may already enable namespaces in its arguments, which would come after ours and win
+        var namespacesArg = "-D" + ENABLED_NAMESPACES_PROPERTY + "=";
+        var argsFile = shardDir.resolve("args.txt");
+        Files.write(argsFile, Files.readAllLines(getArgsFile().get().getAsFile().toPath()).stream()
+                .filter(line -> !line.replace("\"", "").trim().startsWith(namespacesArg))
+                .toList());
+
+        getLogger().lifecycle("GameTest shard {}: {}", index, String.join(", ", namespaces));
+        var start = System.nanoTime();
+        int exitCode;
+        try (var out = Files.newOutputStream(log)) {
+            exitCode = getExecOperations().javaexec(spec -> {
+                spec.setExecutable(getJavaLauncher().get().getExecutablePath().getAsFile());
+                spec.setClasspath(getClasspath());
+                spec.getJvmArgumentProviders().addAll(getJvmArgumentProviders().get());
+                spec.jvmArgs(namespacesArg + String.join(",", namespaces));
+                spec.getMainClass().set("@" + argsFile.toAbsolutePath());
+                spec.setWorkingDir(gameDir.toFile());
+                spec.setStandardOutput(out);
+                spec.setErrorOutput(out);
+                // The GameTest server exits with the number of failed tests
+                spec.setIgnoreExitValue(true);
+            }).getExitValue();
+        }
+        var durationMillis = (System.nanoTime() - start) / 1_000_000;
+
+        var testCases = new ArrayList<TestCase>();
+        for (var line : Files.readAllLines(log)) {
+            var passed = PASSED.matcher(line);
+            var failed = FAILED.matcher(line);
+            var optionalFailed = OPTIONAL_FAILED.matcher(line);
+            if (passed.find()) {
+                testCases.add(new TestCase(passed.group(1), Long.parseLong(passed.group(2)), null, false));
+            } else if (optionalFailed.find()) {
+                testCases.add(new TestCase(optionalFailed.group(1), 0, optionalFailed.group(2), true));
+            } else if (failed.find()) {
+                testCases.add(new TestCase(failed.group(1), 0, failed.group(2), false));
+            }
+        }
+        return new ShardResult(index, namespaces, exitCode, durationMillis, testCases, log);
+    }
+
+    private static void writeJUnitReport(Path file, ShardResult result) throws IOException {
+        var failures = result.testCases().stream().filter(t -> t.failure() != null && !t.optional()).count();
+        var xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<testsuite name=\"gameTest-shard%d\" tests=\"%d\" failures=\"%d\" errors=\"0\" skipped=\"0\" time=\"%.3f\">\n".formatted(
+                result.index(), result.testCases().size(), failures, result.durationMillis() / 1000.0));
+        for (var testCase : result.testCases()) {
+            xml.append("  <testcase name=\"%s\" classname=\"gameTest\" time=\"%.3f\"".formatted(escape(testCase.name()), testCase.durationMillis() / 1000.0));
+            if (testCase.failure() == null) {
+                xml.append("/>\n");
+            } else if (testCase.optional()) {
+                // Optional tests do not fail the build, report them like JUnit reports skipped tests
+                xml.append(">\n    <skipped message=\"%s\"/>\n  </testcase>\n".formatted(escape(testCase.failure())));
+            } else {
+                xml.append(">\n    <failure message=\"%s\"/>\n  </testcase>\n".formatted(escape(testCase.failure())));
+            }
+        }
+        xml.append("</testsuite>\n");
+        Files.writeString(file, xml.toString());
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    private static Map<String, Long> loadDurations(Path file) {
+        if (!Files.exists(file)) {
+            return new HashMap<>();
+        }
+        try {
+            Map<String, Long> durations = GSON.fromJson(Files.readString(file), new TypeToken<HashMap<String, Long>>() {
+            }.getType());
+            return durations != null ? durations : new HashMap<>();
+        } catch (IOException | RuntimeException e) {
+            // Only used for balancing, start over if it cannot be read
+            return new HashMap<>();
+        }
+    }
+
+    private record TestCase(String name, long durationMillis, @Nullable String failure, boolean optional) {
+    }
+
+    private record ShardResult(int index, List<String> namespaces, int exitCode, long durationMillis, List<TestCase> testCases, Path log) {
+    }
+}
@@ -0,0 +1,285 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs data generation like {@link RunGameTask}, but with its inputs and its output directory declared,
+ * so that it is skipped when nothing that affects the generated data changed, and can be loaded from the build cache.
+ * <p>
+ * The mod classes and resources are inputs through the mod folders argument provider.
+ * <p>
+ * When sharded, data is generated for each mod in a separate JVM, with up to {@link #getMaxParallelShards()} running at
+ * the same time. Each shard has its own game directory and output directory, and the outputs are merged in the order of
+ * the mod ids, so that the result does not depend on which shard finished first.
+ * <p>
+ * Data is generated into a staging directory first, and only the files whose content changed are copied into the
+ * output directory. This keeps the timestamps of unchanged files, so that tasks and IDE indexes depending on them
+ * are not invalidated. This is not possible if the run passes {@code --output} itself.
+ */
+@CacheableTask
+public abstract class GenerateDataTask extends RunGameTask {
+    /**
+     * Holds the JVM arguments, system properties and program arguments of the run.
+     * It is an input through {@link #getNormalizedArguments()}.
+     */
+    @Internal
+    abstract RegularFileProperty getArgsFile();
+
+    /**
+     * Absolute paths below these directories are made relative in {@link #getNormalizedArguments()}.
+     */
+    @Internal
+    abstract ListProperty<Directory> getNormalizedRoots();
+
+    @Classpath
+    @InputFiles
+    abstract ConfigurableFileCollection getLegacyClasspath();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    /**
+     * Whether the output directory has to be passed to the data generator, because the run does not specify one.
+     */
+    @Input
+    abstract Property<Boolean> getPassOutputDirectory();
+
+    /**
+     * Generate the data of each mod in a separate JVM. The run must not pass {@code --mod} or {@code --output} itself.
+     */
+    @Input
+    public abstract Property<Boolean> getShardByMod();
+
+    @Internal
+    public abstract Property<Integer> getMaxParallelShards();
+
+    /**
+     * The ids of the mods to generate data for when sharding.
+     */
+    @Input
+    abstract ListProperty<String> getMods();
+
+    /**
+     * Holds the staging directory, and the game and output directories of the shards.
+     */
+    @Internal
+    abstract DirectoryProperty getWorkDirectory();
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @Inject
+    public GenerateDataTask() {
+        getShardByMod().convention(false);
+        getMaxParallelShards().convention(Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * The contents of the args file, with the absolute paths below the project directory and the Gradle user home
+     * made relative, so that the build cache entries can be shared between machines.
+     * The files these paths point to are inputs of their own, like the classpath, the legacy classpath and the mod folders.
+     */
+    @Input
+    List<String> getNormalizedArguments() throws IOException {
+        var roots = new ArrayList<String>();
+        for (var root : getNormalizedRoots().get()) {
+            roots.add(root.getAsFile().getAbsolutePath());
+        }
+        // Replace nested roots first
+        roots.sort(Comparator.comparingInt(String::length).reversed());
+        var arguments = new ArrayList<String>();
+        for (var line : Files.readAllLines(getArgsFile().get().getAsFile().toPath())) {
+            for (int i = 0; i < roots.size(); i++) {
+                var placeholder = "{root" + i + "}";
+                line = line.replace(roots.get(i).replace("\\", "\\\\"), placeholder).replace(roots.get(i), placeholder);
+            }
+            arguments.add(line);
+        }
+        return arguments;
+    }
+
+    @Override
+    public void exec() {
+        if (getShardByMod().get()) {
+            execShards();
+            return;
+        }
+
+        if (!getPassOutputDirectory().get()) {
+            super.exec();
+            return;
+        }
+
+        var stagingDir = new File(getWorkDirectory().get().getAsFile(), "staging");
+        getFileSystemOperations().delete(spec -> spec.delete(stagingDir));
+        // Arguments after the args-file are appended to the program arguments it contains
+        args("--output", stagingDir.getAbsolutePath());
+        super.exec();
+        syncChangedFiles(List.of(stagingDir));
+    }
+
+    private void execShards() {
+        List<String> programArgs;
+        try {
+            programArgs = new ArrayList<>(Files.readAllLines(getArgsFile().get().getAsFile().toPath()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        programArgs.addAll(getArgs());
+        for (var arg : List.of("--mod", "--output")) {
+            if (programArgs.stream().anyMatch(line -> line.trim().equals(arg))) {
+                throw new GradleException("Sharded data generation passes " + arg + " to each shard itself. Remove " + arg + " from the program arguments of the data run.");
+            }
+        }
+
+        var mods = new TreeSet<>(getMods().get());
+        var shardsDir = new File(getWorkDirectory().get().getAsFile(), "shards");
+        getFileSystemOperations().delete(spec -> spec.delete(shardsDir));
+
+        var executor = Executors.newFixedThreadPool(getMaxParallelShards().get());
+        try {
+            var shards = new ArrayList<Future<?>>();
+            for (var mod : mods) {
+                shards.add(executor.submit(() -> execShard(mod, new File(shardsDir, mod))));
+            }
+            for (var shard : shards) {
+                shard.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GradleException("Interrupted while generating data", e);
+        } catch (ExecutionException e) {
+            throw new GradleException("Data generation failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Mods are merged in order of their ids, earlier mods win if two of them generate the same file
+        syncChangedFiles(mods.stream().map(mod -> new File(shardsDir, mod + "/output")).toList());
+    }
+
+    /**
+     * Makes the output directory contain exactly the files of the given directories, only touching files whose content
+     * differs. If several directories contain the same file, the first one wins.
+     */
+    private void syncChangedFiles(List<File> sourceDirs) {
+        var outputDir = getOutputDirectory().get().getAsFile().toPath();
+        try {
+            var sources = new TreeMap<String, Path>();
+            for (var sourceDir : sourceDirs) {
+                if (!sourceDir.isDirectory()) {
+                    continue;
+                }
+                var root = sourceDir.toPath();
+                try (var stream = Files.walk(root)) {
+                    for (var file : stream.filter(Files::isRegularFile).toList()) {
+                        sources.putIfAbsent(root.relativize(file).toString().replace(File.separatorChar, '/'), file);
+                    }
+                }
+            }
+
+            int added = 0, changed = 0, unchanged = 0, removed = 0;
+            Files.createDirectories(outputDir);
+            try (var stream = Files.walk(outputDir)) {
+                for (var file : stream.filter(Files::isRegularFile).toList()) {
+                    if (!sources.containsKey(outputDir.relativize(file).toString().replace(File.separatorChar, '/'))) {
+                        Files.delete(file);
+                        removed++;
+                    }
+                }
+            }
+            for (var entry : sources.entrySet()) {
+                var target = outputDir.resolve(entry.getKey());
+                if (!Files.exists(target)) {
+                    Files.createDirectories(target.getParent());
+                    Files.copy(entry.getValue(), target);
+                    added++;
+                } else if (Files.mismatch(entry.getValue(), target) != -1) {
+                    Files.copy(entry.getValue(), target, StandardCopyOption.REPLACE_EXISTING);
+                    changed++;
+                } else {
+                    unchanged++;
+                }
+            }
+            deleteEmptyDirectories(outputDir);
+
+            getLogger().lifecycle("Generated data: {} added, {} changed, {} removed, {} unchanged", added, changed, removed, unchanged);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy generated data to " + outputDir, e);
+        }
+    }
+
+    private static void deleteEmptyDirectories(Path root) throws IOException {
+        try (var stream = Files.walk(root)) {
+            // Deepest directories first, so that directories that only contain empty directories are deleted too
+            for (var dir : stream.filter(Files::isDirectory).sorted(Comparator.reverseOrder()).toList()) {
+                if (!dir.equals(root)) {
+                    try (var children = Files.list(dir)) {
+                        if (children.findAny().isEmpty()) {
+                            Files.delete(dir);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void execShard(String mod, File shardDir) {
+        var gameDir = new File(shardDir, "game");
+        var outputDir = new File(shardDir, "output");
+        if (!gameDir.mkdirs()) {
+            throw new UncheckedIOException(new IOException("Failed to create " + gameDir));
+        }
+        var executable = getJavaLauncher().get().getExecutablePath().getAsFile();
+
+        getLogger().lifecycle("Generating data for {}", mod);
+        getExecOperations().javaexec(spec -> {
+            spec.setExecutable(executable);
+            spec.setClasspath(getClasspathProvider());
+            spec.jvmArgs(getJvmArgs());
+            spec.getJvmArgumentProviders().addAll(getJvmArgumentProviders());
+            spec.systemProperties(getSystemProperties());
+            spec.setEnvironment(getEnvironment());
+            // The main class refers to the args file relative to the game directory of the run, which shards do not use
+            spec.getMainClass().set("@" + getArgsFile().get().getAsFile().getAbsolutePath());
+            spec.args(getArgs());
+            spec.args("--mod", mod, "--output", outputDir.getAbsolutePath());
+            spec.setWorkingDir(gameDir);
+            spec.setStandardOutput(getStandardOutput());
+            spec.setErrorOutput(getErrorOutput());
+        });
+    }
+}
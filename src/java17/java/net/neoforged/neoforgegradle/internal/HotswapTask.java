@@ -0,0 +1,134 @@
+package net.neoforged.neoforgegradle.internal;
+
+import com.sun.jdi.Bootstrap;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.VirtualMachine;
+import com.sun.jdi.connect.IllegalConnectorArgumentsException;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pushes the classes of the mods that changed since the game was launched, or since the last push, into the running
+ * game. Connects to the debug agent that {@link RunGameTask} starts for hotswap runs and redefines the classes through it,
+ * like an IDE debugger would.
+ */
+@DisableCachingByDefault(because = "Modifies a running game")
+abstract class HotswapTask extends DefaultTask {
+    @Inject
+    public HotswapTask() {
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @Internal
+    abstract MapProperty<String, ModFolder> getModFolders();
+
+    /**
+     * Written by the run task while the game is running.
+     */
+    @Internal
+    abstract RegularFileProperty getPortFile();
+
+    /**
+     * Its modification time is when classes were last pushed.
+     */
+    @Internal
+    abstract RegularFileProperty getStateFile();
+
+    @TaskAction
+    public void hotswap() throws IOException {
+        var portFile = getPortFile().get().getAsFile().toPath();
+        if (!Files.exists(portFile)) {
+            getLogger().info("The game is not running. Nothing to hotswap.");
+            return;
+        }
+        var stateFile = getStateFile().get().getAsFile().toPath();
+        var lastPush = Files.getLastModifiedTime(portFile);
+        if (Files.exists(stateFile) && Files.getLastModifiedTime(stateFile).compareTo(lastPush) > 0) {
+            lastPush = Files.getLastModifiedTime(stateFile);
+        }
+
+        var changedClasses = new HashMap<String, Path>();
+        for (var modFolder : getModFolders().get().values()) {
+            for (var folder : modFolder.getFolders().getFiles()) {
+                if (folder.isDirectory()) {
+                    collectChangedClasses(folder.toPath(), lastPush, changedClasses);
+                }
+            }
+        }
+        if (changedClasses.isEmpty()) {
+            getLogger().lifecycle("No classes changed since the last hotswap.");
+            return;
+        }
+
+        var pushedAt = Instant.now();
+        var vm = attach(Integer.parseInt(Files.readString(portFile).trim()));
+        try {
+            var redefinitions = new HashMap<ReferenceType, byte[]>();
+            for (var entry : changedClasses.entrySet()) {
+                // Classes that are not loaded yet will be loaded from the class directories anyway
+                var bytecode = Files.readAllBytes(entry.getValue());
+                for (var type : vm.classesByName(entry.getKey())) {
+                    redefinitions.put(type, bytecode);
+                }
+            }
+            if (!redefinitions.isEmpty()) {
+                vm.redefineClasses(redefinitions);
+            }
+            getLogger().lifecycle("Hotswapped {} loaded classes ({} changed).", redefinitions.size(), changedClasses.size());
+        } catch (UnsupportedOperationException e) {
+            throw new GradleException("The game rejected the changed classes. Restart it to apply them: " + e.getMessage(), e);
+        } finally {
+            // Detaches without terminating the game
+            vm.dispose();
+        }
+
+        Files.createDirectories(stateFile.getParent());
+        Files.writeString(stateFile, pushedAt.toString());
+        Files.setLastModifiedTime(stateFile, FileTime.from(pushedAt));
+    }
+
+    private static void collectChangedClasses(Path root, FileTime since, Map<String, Path> result) throws IOException {
+        try (var stream = Files.walk(root)) {
+            for (var path : (Iterable<Path>) stream::iterator) {
+                var fileName = path.getFileName().toString();
+                if (!fileName.endsWith(".class") || fileName.equals("module-info.class") || fileName.equals("package-info.class")) {
+                    continue;
+                }
+                if (Files.getLastModifiedTime(path).compareTo(since) > 0) {
+                    var relativePath = root.relativize(path).toString().replace(File.separatorChar, '/');
+                    result.put(relativePath.substring(0, relativePath.length() - ".class".length()).replace('/', '.'), path);
+                }
+            }
+        }
+    }
+
+    private static VirtualMachine attach(int port) throws IOException {
+        var connector = Bootstrap.virtualMachineManager().attachingConnectors().stream()
+                .filter(c -> c.transport().name().equals("dt_socket"))
+                .findFirst()
+                .orElseThrow(() -> new GradleException("The JDK running Gradle does not support attaching to a socket."));
+        var arguments = connector.defaultArguments();
+        arguments.get("hostname").setValue("127.0.0.1");
+        arguments.get("port").setValue(String.valueOf(port));
+        try {
+            return connector.attach(arguments);
+        } catch (IllegalConnectorArgumentsException e) {
+            throw new GradleException("Failed to attach to the game on port " + port, e);
+        }
+    }
+}
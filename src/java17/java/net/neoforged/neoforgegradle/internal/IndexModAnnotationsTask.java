@@ -0,0 +1,93 @@
+package net.neoforged.neoforgegradle.internal;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.reflect.TypeToken;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes the data that FML's class scan collects for the compiled classes of a source set to
+ * {@value #INDEX_PATH}, so that it ends up next to the classes in the mod folders and jars.
+ * Only classes that changed since the last build are read again.
+ */
+@CacheableTask
+abstract class IndexModAnnotationsTask extends DefaultTask {
+    static final String INDEX_PATH = "META-INF/neoforge-scan-index.json";
+    private static final Gson GSON = new GsonBuilder()
+            .disableHtmlEscaping()
+            // Keep numbers as they were written when reading the previous index
+            .setObjectToNumberStrategy(ToNumberPolicy.LAZILY_PARSED_NUMBER)
+            .create();
+
+    @Inject
+    public IndexModAnnotationsTask() {
+    }
+
+    @Incremental
+    @InputFiles
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    abstract ConfigurableFileCollection getClassesDirs();
+
+    @OutputDirectory
+    abstract DirectoryProperty getOutputDirectory();
+
+    @TaskAction
+    public void index(InputChanges inputChanges) throws IOException {
+        var indexFile = getOutputDirectory().get().getAsFile().toPath().resolve(INDEX_PATH);
+
+        // Keyed by the path of the class file, so that changes can be applied to the previous index
+        Map<String, ClassFileScanner.ScannedClass> classes = new TreeMap<>();
+        if (inputChanges.isIncremental() && Files.exists(indexFile)) {
+            try (var reader = Files.newBufferedReader(indexFile)) {
+                Map<String, ClassFileScanner.ScannedClass> previous = GSON.fromJson(reader, new TypeToken<TreeMap<String, ClassFileScanner.ScannedClass>>() {
+                }.getType());
+                if (previous != null) {
+                    classes.putAll(previous);
+                }
+            }
+        }
+
+        int scanned = 0;
+        for (var change : inputChanges.getFileChanges(getClassesDirs())) {
+            var path = change.getNormalizedPath();
+            if (change.getFileType() == FileType.DIRECTORY || !path.endsWith(".class") || path.endsWith("module-info.class")) {
+                continue;
+            }
+            if (change.getChangeType() == ChangeType.REMOVED) {
+                classes.remove(path);
+            } else {
+                try {
+                    classes.put(path, ClassFileScanner.scan(Files.readAllBytes(change.getFile().toPath())));
+                } catch (IOException e) {
+                    throw new IOException("Failed to scan " + change.getFile(), e);
+                }
+                scanned++;
+            }
+        }
+
+        Files.createDirectories(indexFile.getParent());
+        Files.writeString(indexFile, GSON.toJson(classes));
+        getLogger().info("Scanned {} classes, {} classes in the index", scanned, classes.size());
+    }
+}
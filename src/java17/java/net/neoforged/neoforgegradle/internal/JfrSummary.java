@@ -0,0 +1,221 @@
+package net.neoforged.neoforgegradle.internal;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Condenses a flight recording into a short, human-readable text summary.
+ */
+final class JfrSummary {
+    private static final int TOP_ENTRIES = 20;
+    /**
+     * Samples that are not attributed to any mod.
+     */
+    private static final String OTHER = "(other)";
+    private static final String EVENT_BUS_PACKAGE = "net.neoforged.bus.";
+
+    private final ModClassIndex modClassIndex;
+
+    private final Map<String, Long> executionSamples = new HashMap<>();
+    private final Map<String, Long> allocationSites = new HashMap<>();
+    private final Map<String, Long> allocatedTypes = new HashMap<>();
+    private final Map<String, Long> contendedMonitors = new HashMap<>();
+    private long gcCount;
+    private Duration gcPauseTotal = Duration.ZERO;
+    private Duration gcPauseLongest = Duration.ZERO;
+    private final Map<String, Long> executionSamplesByMod = new HashMap<>();
+    private final Map<String, Long> executionSamplesBySubscriber = new HashMap<>();
+    private final Map<String, Long> allocationsByMod = new HashMap<>();
+    @Nullable
+    private Instant firstEvent;
+    @Nullable
+    private Instant lastEvent;
+
+    private JfrSummary(ModClassIndex modClassIndex) {
+        this.modClassIndex = modClassIndex;
+    }
+
+    /**
+     * @param modClassIndex Used to attribute samples to the mods whose code is on the stack.
+     */
+    static void write(Path recording, ModClassIndex modClassIndex, Path destination) throws IOException {
+        var summary = new JfrSummary(modClassIndex);
+        try (var file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                summary.accept(file.readEvent());
+            }
+        }
+        Files.writeString(destination, summary.format());
+    }
+
+    private void accept(RecordedEvent event) {
+        if (firstEvent == null || event.getStartTime().isBefore(firstEvent)) {
+            firstEvent = event.getStartTime();
+        }
+        if (lastEvent == null || event.getEndTime().isAfter(lastEvent)) {
+            lastEvent = event.getEndTime();
+        }
+
+        switch (event.getEventType().getName()) {
+            case "jdk.ExecutionSample" -> {
+                var frame = getTopFrame(event);
+                if (frame != null) {
+                    executionSamples.merge(formatFrame(frame), 1L, Long::sum);
+                }
+                executionSamplesByMod.merge(getResponsibleMod(event), 1L, Long::sum);
+                var subscriber = getEventSubscriber(event);
+                if (subscriber != null) {
+                    executionSamplesBySubscriber.merge(subscriber, 1L, Long::sum);
+                }
+            }
+            case "jdk.ObjectAllocationSample" -> {
+                var weight = event.getLong("weight");
+                var frame = getTopFrame(event);
+                if (frame != null) {
+                    allocationSites.merge(formatFrame(frame), weight, Long::sum);
+                }
+                var objectClass = event.getClass("objectClass");
+                if (objectClass != null) {
+                    allocatedTypes.merge(objectClass.getName(), weight, Long::sum);
+                }
+                allocationsByMod.merge(getResponsibleMod(event), weight, Long::sum);
+            }
+            case "jdk.GarbageCollection" -> {
+                gcCount++;
+                gcPauseTotal = gcPauseTotal.plus(event.getDuration("sumOfPauses"));
+                var longestPause = event.getDuration("longestPause");
+                if (longestPause.compareTo(gcPauseLongest) > 0) {
+                    gcPauseLongest = longestPause;
+                }
+            }
+            case "jdk.JavaMonitorEnter" -> {
+                var monitorClass = event.getClass("monitorClass");
+                var frame = getTopFrame(event);
+                var key = (monitorClass != null ? monitorClass.getName() : "?") + (frame != null ? " in " + formatFrame(frame) : "");
+                contendedMonitors.merge(key, event.getDuration().toNanos(), Long::sum);
+            }
+            default -> {
+            }
+        }
+    }
+
+    private String format() {
+        var result = new StringBuilder();
+
+        result.append("Hot methods (execution samples)\n");
+        appendTop(result, executionSamples, value -> value + " samples");
+
+        result.append("\nAllocation hotspots (sampled bytes)\n");
+        appendTop(result, allocationSites, JfrSummary::formatBytes);
+
+        result.append("\nAllocated types (sampled bytes)\n");
+        appendTop(result, allocatedTypes, JfrSummary::formatBytes);
+
+        result.append("\nGarbage collection\n");
+        result.append("  ").append(gcCount).append(" collections, ")
+                .append(gcPauseTotal.toMillis()).append(" ms total pause time, ")
+                .append(gcPauseLongest.toMillis()).append(" ms longest pause\n");
+
+        result.append("\nLock contention (time blocked)\n");
+        appendTop(result, contendedMonitors, nanos -> Duration.ofNanos(nanos).toMillis() + " ms");
+
+        if (!modClassIndex.isEmpty()) {
+            result.append("\nCPU by mod (execution samples with the mod's code on the stack)\n");
+            appendTop(result, executionSamplesByMod, value -> value + " samples");
+
+            result.append("\nCPU by event subscriber\n");
+            appendTop(result, executionSamplesBySubscriber, value -> value + " samples");
+
+            var seconds = firstEvent != null && lastEvent != null ? Math.max(1, Duration.between(firstEvent, lastEvent).toSeconds()) : 1;
+            result.append("\nAllocation rate by mod (sampled)\n");
+            appendTop(result, allocationsByMod, bytes -> formatBytes(bytes / seconds) + "/s");
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Attributes a sample to the mod whose code is closest to the top of the stack. Samples in Minecraft or library code
+     * that was called by a mod are attributed to that mod.
+     */
+    private String getResponsibleMod(RecordedEvent event) {
+        var stackTrace = event.getStackTrace();
+        if (stackTrace != null) {
+            for (var frame : stackTrace.getFrames()) {
+                var mod = modClassIndex.getMod(frame.getMethod().getType().getName());
+                if (mod != null) {
+                    return mod;
+                }
+            }
+        }
+        return OTHER;
+    }
+
+    /**
+     * Finds the mod method that was invoked by the event bus for the innermost event dispatch on the stack.
+     */
+    @Nullable
+    private String getEventSubscriber(RecordedEvent event) {
+        var stackTrace = event.getStackTrace();
+        if (stackTrace == null) {
+            return null;
+        }
+        String subscriber = null;
+        for (var frame : stackTrace.getFrames()) {
+            var className = frame.getMethod().getType().getName();
+            if (className.startsWith(EVENT_BUS_PACKAGE)) {
+                return subscriber;
+            }
+            var mod = modClassIndex.getMod(className);
+            if (mod != null && !className.contains("$$")) {
+                subscriber = mod + ": " + formatFrame(frame);
+            }
+        }
+        return null;
+    }
+
+    private static void appendTop(StringBuilder result, Map<String, Long> values, LongFunction<String> formatter) {
+        if (values.isEmpty()) {
+            result.append("  (none recorded)\n");
+            return;
+        }
+        var total = values.values().stream().mapToLong(Long::longValue).sum();
+        values.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_ENTRIES)
+                .forEach(entry -> result.append("  %5.1f%%  %-16s %s%n".formatted(
+                        100.0 * entry.getValue() / total, formatter.apply(entry.getValue()), entry.getKey())));
+    }
+
+    @Nullable
+    static RecordedFrame getTopFrame(RecordedEvent event) {
+        var stackTrace = event.getStackTrace();
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return null;
+        }
+        return stackTrace.getFrames().get(0);
+    }
+
+    static String formatFrame(RecordedFrame frame) {
+        var method = frame.getMethod();
+        return method.getType().getName() + "." + method.getName();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes >= 1024 * 1024) {
+            return (bytes / (1024 * 1024)) + " MiB";
+        }
+        return (bytes / 1024) + " KiB";
+    }
+}
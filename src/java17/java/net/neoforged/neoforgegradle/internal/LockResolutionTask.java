@@ -0,0 +1,42 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+import javax.inject.Inject;
+
+/**
+ * Resolves all dependency graphs used by the plugin, so that Gradle records them in the
+ * dependency lock file when the build is run with {@code --write-locks}.
+ * <p>
+ * Once the lock file exists, later builds resolve exactly the locked versions.
+ * To also pin the checksums of the locked artifacts, run the task with
+ * {@code --write-verification-metadata sha256}.
+ */
+@DisableCachingByDefault(because = "Only resolves dependencies")
+abstract class LockResolutionTask extends DefaultTask {
+    @Inject
+    public LockResolutionTask() {
+    }
+
+    @InputFiles
+    abstract ConfigurableFileCollection getResolvedFiles();
+
+    @Input
+    abstract Property<Boolean> getWriteDependencyLocks();
+
+    @TaskAction
+    public void lockResolution() {
+        if (!getWriteDependencyLocks().get()) {
+            throw new GradleException("To write the NeoForge dependency lock state, run " + getName() + " with --write-locks");
+        }
+
+        getLogger().lifecycle("Locked {} resolved files", getResolvedFiles().getFiles().size());
+    }
+}
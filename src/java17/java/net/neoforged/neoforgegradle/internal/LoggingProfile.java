@@ -0,0 +1,69 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.GradleException;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * The logging configurations that can be selected for a run via {@code loggingProfile}.
+ */
+enum LoggingProfile {
+    /**
+     * Keeps logging overhead out of the game threads, for heavy modpacks and for measuring performance.
+     */
+    FAST("info", "info", null, true),
+    DEFAULT("debug", "debug", "debug", false),
+    /**
+     * Records everything, for tracking down problems.
+     */
+    DIAGNOSTIC("trace", "debug", "trace", false);
+
+    private final String rootLevel;
+    private final String consoleLevel;
+    @Nullable
+    private final String debugFileLevel;
+    private final boolean async;
+
+    /**
+     * @param rootLevel      Level of the root logger, which determines which events are created at all.
+     * @param consoleLevel   Default level for the console output.
+     * @param debugFileLevel Default level for {@code logs/debug.log}, or null to not write a debug log.
+     * @param async          Whether console and file output are written on a background thread.
+     */
+    LoggingProfile(String rootLevel, String consoleLevel, @Nullable String debugFileLevel, boolean async) {
+        this.rootLevel = rootLevel;
+        this.consoleLevel = consoleLevel;
+        this.debugFileLevel = debugFileLevel;
+        this.async = async;
+    }
+
+    String rootLevel() {
+        return rootLevel;
+    }
+
+    String consoleLevel() {
+        return consoleLevel;
+    }
+
+    @Nullable
+    String debugFileLevel() {
+        return debugFileLevel;
+    }
+
+    boolean async() {
+        return async;
+    }
+
+    static LoggingProfile byName(String name) {
+        for (var profile : values()) {
+            if (profile.name().toLowerCase(Locale.ROOT).equals(name)) {
+                return profile;
+            }
+        }
+        throw new GradleException("Unknown logging profile: " + name + ". Available logging profiles: "
+                                  + Arrays.stream(values()).map(p -> p.name().toLowerCase(Locale.ROOT)).collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,74 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipFile;
+
+/**
+ * Maps class names to the mod that contains them, based on the folders and jars that make up each mod.
+ */
+final class ModClassIndex {
+    private final Map<String, String> modByClass = new HashMap<>();
+
+    private ModClassIndex() {
+    }
+
+    static ModClassIndex create(Map<String, ModFolder> modFolders) throws IOException {
+        var index = new ModClassIndex();
+        for (var entry : modFolders.entrySet()) {
+            for (var file : entry.getValue().getFolders().getFiles()) {
+                index.addClasses(entry.getKey(), file);
+            }
+        }
+        return index;
+    }
+
+    boolean isEmpty() {
+        return modByClass.isEmpty();
+    }
+
+    /**
+     * @return The mod containing the given class, or null if it is not part of a mod.
+     */
+    @Nullable
+    String getMod(String className) {
+        // Lambdas and other hidden classes are named after the class that defines them
+        var hiddenClassSuffix = className.indexOf("$$");
+        if (hiddenClassSuffix != -1) {
+            className = className.substring(0, hiddenClassSuffix);
+        }
+        return modByClass.get(className);
+    }
+
+    private void addClasses(String mod, File file) throws IOException {
+        if (file.isDirectory()) {
+            var root = file.toPath();
+            try (var stream = Files.walk(root)) {
+                stream.filter(p -> p.getFileName().toString().endsWith(".class"))
+                        .forEach(p -> addClass(mod, root.relativize(p).toString().replace(File.separatorChar, '/')));
+            }
+        } else if (file.isFile() && file.getName().endsWith(".jar")) {
+            try (var zip = new ZipFile(file)) {
+                var entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    var name = entries.nextElement().getName();
+                    if (name.endsWith(".class")) {
+                        addClass(mod, name);
+                    }
+                }
+            }
+        }
+    }
+
+    private void addClass(String mod, String path) {
+        if (path.startsWith("META-INF/") || path.endsWith("module-info.class") || path.endsWith("package-info.class")) {
+            return;
+        }
+        modByClass.putIfAbsent(path.substring(0, path.length() - ".class".length()).replace('/', '.'), mod);
+    }
+}
@@ -2,29 +2,44 @@ package net.neoforged.neoforgegradle.internal;
 
 import net.neoforged.neoforgegradle.dsl.ExtraIdeaModel;
 import net.neoforged.neoforgegradle.dsl.JarJar;
+import net.neoforged.neoforgegradle.dsl.ModModel;
 import net.neoforged.neoforgegradle.dsl.NeoForgeExtension;
 import net.neoforged.neoforgegradle.dsl.RunModel;
 import net.neoforged.neoforgegradle.internal.jarjar.JarJarExtension;
 import net.neoforged.neoforgegradle.internal.utils.ExtensionUtils;
 import net.neoforged.neoforgegradle.internal.utils.StringUtils;
+import org.gradle.api.Action;
+import org.gradle.api.GradleException;
 import org.gradle.api.Project;
-import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.attributes.Bundling;
 import org.gradle.api.attributes.Usage;
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.ProjectLayout;
-import org.gradle.api.file.RegularFile;
 import org.gradle.api.plugins.ExtensionAware;
 import org.gradle.api.plugins.JavaLibraryPlugin;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
-import org.gradle.internal.component.external.model.ModuleComponentArtifactIdentifier;
+import org.gradle.api.tasks.Sync;
 import org.gradle.jvm.toolchain.JavaLanguageVersion;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.jvm.toolchain.JavaToolchainService;
+import org.gradle.jvm.toolchain.JvmVendorSpec;
+import org.gradle.language.jvm.tasks.ProcessResources;
 import org.gradle.plugins.ide.idea.model.IdeaModel;
 import org.gradle.plugins.ide.idea.model.IdeaProject;
 import org.gradle.process.CommandLineArgumentProvider;
@@ -41,15 +56,51 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class ModDevPluginImpl {
     private static final Attribute<String> ATTRIBUTE_DISTRIBUTION = Attribute.of("net.neoforged.distribution", String.class);
     private static final Attribute<String> ATTRIBUTE_OPERATING_SYSTEM = Attribute.of("net.neoforged.operatingsystem", String.class);
 
+    /**
+     * Groups of the libraries that Minecraft declares in its version manifest.
+     * This list is maintained by hand and has to be updated when Minecraft starts using libraries from a new group.
+     * A missing group is not an error, but its libraries are then silently resolved from the NeoForged Maven mirror.
+     */
+    private static final List<String> MINECRAFT_LIBRARY_GROUPS = List.of(
+            "ca.weblite",
+            "com.github.oshi",
+            "com.google.code.gson",
+            "com.google.guava",
+            "com.ibm.icu",
+            "com.mojang",
+            "commons-codec",
+            "commons-io",
+            "commons-logging",
+            "io.netty",
+            "it.unimi.dsi",
+            "net.java.dev.jna",
+            "net.sf.jopt-simple",
+            "org.apache.commons",
+            "org.apache.httpcomponents",
+            "org.apache.logging.log4j",
+            "org.jcraft",
+            "org.joml",
+            "org.lwjgl",
+            "org.lz4",
+            "org.slf4j"
+    );
+
     public void apply(Project project) {
         project.getPlugins().apply(JavaLibraryPlugin.class);
         var javaExtension = ExtensionUtils.getExtension(project, "java", JavaPluginExtension.class);
@@ -71,18 +122,33 @@ public class ModDevPluginImpl {
         repositories.addLast(repositories.maven(repo -> {
             repo.setUrl(URI.create("https://libraries.minecraft.net/"));
             repo.metadataSources(sources -> sources.artifact());
-            // TODO: Filter known groups that they ship and dont just run everything against it
+            // Only ask for the groups that Minecraft's libraries actually come from.
+            // Everything else it mirrors is also available from the NeoForged Maven.
+            repo.content(content -> {
+                for (var group : MINECRAFT_LIBRARY_GROUPS) {
+                    content.includeGroupAndSubgroups(group);
+                }
+            });
         }));
-        repositories.addLast(repositories.maven(repo -> {
+        var localRepository = repositories.maven(repo -> {
             repo.setUrl(project.getLayout().getBuildDirectory().map(dir -> dir.dir("repo").getAsFile().getAbsolutePath()));
             repo.metadataSources(sources -> sources.mavenPom());
-        }));
-        repositories.add(repositories.mavenLocal()); // TODO TEMP
+        });
+        repositories.addLast(localRepository);
+        // The generated Minecraft artifacts only ever come from the local repository, so no other repository
+        // needs to be asked for them, and the local repository does not need to be asked for anything else.
+        repositories.exclusiveContent(exclusive -> {
+            exclusive.forRepositories(localRepository);
+            exclusive.filter(filter -> filter.includeGroup("minecraft"));
+        });
+        // Only used to test locally published NeoForge builds, so other dependencies are never probed in ~/.m2
+        repositories.add(repositories.mavenLocal(repo -> repo.content(content -> content.includeGroupAndSubgroups("net.neoforged"))));
 
         var configurations = project.getConfigurations();
         var neoForgeModDev = configurations.create("neoForgeModDev", files -> {
             files.setCanBeConsumed(false);
             files.setCanBeResolved(true);
+            files.getResolutionStrategy().activateDependencyLocking();
             //files.defaultDependencies(spec -> spec.addLater(neoForgeUserdevDependency));
         });
         var neoFormRuntimeConfig = configurations.create("neoFormRuntime", files -> {
@@ -113,6 +179,7 @@ public class ModDevPluginImpl {
         // and has to include the libraries added by NeoForm and NeoForge.
         var minecraftCompileClasspath = configurations.create("minecraftCompileClasspath", spec -> {
             spec.setCanBeResolved(true);
+            spec.getResolutionStrategy().activateDependencyLocking();
             spec.setCanBeConsumed(false);
             spec.setVisible(false);
             spec.withDependencies(set -> set.addLater(neoForgeModDevLibrariesDependency));
@@ -127,15 +194,10 @@ public class ModDevPluginImpl {
         var tasks = project.getTasks();
 
         var createManifest = tasks.register("createArtifactManifest", CreateArtifactManifestTask.class, task -> {
-            task.getNeoForgeModDevArtifacts().set(neoForgeModDev.getIncoming().getArtifacts().getResolvedArtifacts().map(results -> {
-                return results.stream().map(result -> {
-                    var gav = guessMavenGav(result);
-                    return new ArtifactManifestEntry(
-                            gav,
-                            result.getFile()
-                    );
-                }).collect(Collectors.toSet());
-            }));
+            // Pass the artifact collection itself, so that it is only resolved when the task actually runs
+            var neoForgeModDevArtifacts = neoForgeModDev.getIncoming().getArtifacts();
+            task.getNeoForgeModDevArtifacts().set(neoForgeModDevArtifacts.getResolvedArtifacts());
+            task.getNeoForgeModDevFiles().from(neoForgeModDevArtifacts.getArtifactFiles());
             task.getManifestFile().set(layout.getBuildDirectory().file("neoform_artifact_manifest.properties"));
         });
 
@@ -143,7 +205,7 @@ public class ModDevPluginImpl {
         var createArtifacts = tasks.register("createMinecraftArtifacts", CreateMinecraftArtifactsTask.class, task -> {
             task.getVerbose().set(extension.getVerbose());
             task.getEnableCache().set(extension.getEnableCache());
-            task.getArtifactManifestFile().set(createManifest.get().getManifestFile());
+            task.getArtifactManifestFile().set(createManifest.flatMap(CreateArtifactManifestTask::getManifestFile));
             task.getNeoForgeArtifact().set(extension.getVersion().map(version -> "net.neoforged:neoforge:" + version));
             task.getAccessTransformers().from(accessTransformers);
             task.getNeoFormRuntime().from(neoFormRuntimeConfig);
@@ -159,8 +221,6 @@ public class ModDevPluginImpl {
             task.getAssetPropertiesFile().set(layout.getBuildDirectory().file("minecraft_assets.properties"));
         });
 
-        createDummyFilesInLocalRepository(layout);
-
         // This is an empty, but otherwise valid jar file that creates an implicit dependency on the task
         // creating our repo, while not creating duplicates on the classpath.
         var minecraftDummyArtifact = createArtifacts.map(task -> project.files(task.getDummyArtifact()));
@@ -169,8 +229,11 @@ public class ModDevPluginImpl {
             config.setCanBeResolved(false);
             config.setCanBeConsumed(false);
         });
-        project.getDependencies().add(localRuntime.getName(), "minecraft:neoforge-minecraft-joined:local");
-        project.getDependencies().addProvider(localRuntime.getName(), minecraftDummyArtifact);
+        localRuntime.withDependencies(dependencies -> {
+            createDummyFilesInLocalRepository(layout);
+            dependencies.add(dependencyFactory.create("minecraft:neoforge-minecraft-joined:local"));
+            dependencies.addLater(minecraftDummyArtifact.map(dependencyFactory::create));
+        });
 
         project.getDependencies().attributesSchema(attributesSchema -> {
             attributesSchema.attribute(ATTRIBUTE_DISTRIBUTION).getDisambiguationRules().add(DistributionDisambiguation.class);
@@ -179,6 +242,7 @@ public class ModDevPluginImpl {
 
         configurations.named("compileOnly").configure(configuration -> {
             configuration.withDependencies(dependencies -> {
+                createDummyFilesInLocalRepository(layout);
                 dependencies.add(dependencyFactory.create("minecraft:neoforge-minecraft-joined:local"));
                 dependencies.addLater(minecraftDummyArtifact.map(dependencyFactory::create));
                 dependencies.addLater(neoForgeModDevLibrariesDependency);
@@ -189,6 +253,7 @@ public class ModDevPluginImpl {
         // Weirdly enough, testCompileOnly extends from compileOnlyApi, and not compileOnly
         configurations.named("testCompileOnly").configure(configuration -> {
             configuration.withDependencies(dependencies -> {
+                createDummyFilesInLocalRepository(layout);
                 dependencies.add(dependencyFactory.create("minecraft:neoforge-minecraft-joined:local"));
                 dependencies.addLater(minecraftDummyArtifact.map(dependencyFactory::create));
                 dependencies.addLater(neoForgeModDevLibrariesDependency);
@@ -210,6 +275,7 @@ public class ModDevPluginImpl {
         // I don't like having to use a configuration for this...
         var userDevConfigOnly = project.getConfigurations().create("neoForgeConfigOnly", spec -> {
             spec.setCanBeResolved(true);
+            spec.getResolutionStrategy().activateDependencyLocking();
             spec.setCanBeConsumed(false);
             spec.setTransitive(false);
             spec.withDependencies(set -> set.addLater(extension.getVersion().map(version -> {
@@ -221,6 +287,7 @@ public class ModDevPluginImpl {
         });
         var neoForgeModDevModules = project.getConfigurations().create("neoForgeModuleOnly", spec -> {
             spec.setCanBeResolved(true);
+            spec.getResolutionStrategy().activateDependencyLocking();
             spec.setCanBeConsumed(false);
             spec.withDependencies(set -> set.addLater(extension.getVersion().map(version -> {
                 return dependencyFactory.create("net.neoforged:neoforge:" + version)
@@ -232,51 +299,287 @@ public class ModDevPluginImpl {
             })));
         });
 
+        // The NeoForge libraries on the legacy classpath only depend on the distribution, not on the run.
+        // Runs share one resolution per distribution, and only their additional runtime classpath is resolved per run.
+        var clientLegacyClasspath = createLegacyClasspathConfiguration(project, "neoForgeClientLegacyClasspath", "client", neoForgeModDevLibrariesDependency);
+        var serverLegacyClasspath = createLegacyClasspathConfiguration(project, "neoForgeServerLegacyClasspath", "server", neoForgeModDevLibrariesDependency);
+
+        // Lock state is written by running this task with --write-locks.
+        // Until a lock file exists, activating dependency locking has no effect on resolution.
+        var writeDependencyLocks = project.getGradle().getStartParameter().isWriteDependencyLocks();
+        tasks.register("neoForgeLockResolution", LockResolutionTask.class, task -> {
+            task.setDescription("Resolves all NeoForge dependency graphs to record them in the dependency lock file. Must be run with --write-locks.");
+            task.getWriteDependencyLocks().set(writeDependencyLocks);
+            task.getResolvedFiles().from(neoForgeModDev, minecraftCompileClasspath, userDevConfigOnly, neoForgeModDevModules);
+            task.getResolvedFiles().from(clientLegacyClasspath, serverLegacyClasspath);
+            task.getResolvedFiles().from(project.provider(() -> extension.getRuns().stream()
+                    .map(run -> configurations.named(run.nameOf("", "legacyClasspath")))
+                    .toList()));
+        });
+
+        var javaToolchains = project.getExtensions().getByType(JavaToolchainService.class);
+        var createRuntimeImage = tasks.register("createRuntimeImage", CreateRuntimeImageTask.class, task -> {
+            task.getModules().from(neoForgeModDevModules);
+            task.getJavaLauncher().set(javaToolchains.launcherFor(javaExtension.getToolchain()));
+            task.getImageDirectory().set(layout.getBuildDirectory().dir("moddev/runtimeImage"));
+        });
+
+        var defaultLauncher = javaToolchains.launcherFor(javaExtension.getToolchain());
+        // Enhanced class redefinition is only available in the JetBrains Runtime
+        var hotswapLauncher = javaToolchains.launcherFor(spec -> {
+            spec.getLanguageVersion().set(javaExtension.getToolchain().getLanguageVersion());
+            spec.getVendor().set(JvmVendorSpec.JETBRAINS);
+        });
+
+        // The JVM that launches a run: its runtime image, the JetBrains Runtime when hotswapping, or the default toolchain.
+        // JavaExec always launches the executable of its launcher, so the runtime image has to be the launcher.
+        // Tasks that launch a run also need to depend on runLauncherDependencies.
+        Function<RunModel, Provider<JavaLauncher>> runLauncher = run -> run.getUseRuntimeImage().zip(run.getHotswap(), (useRuntimeImage, hotswap) -> {
+            if (useRuntimeImage && hotswap) {
+                throw new GradleException("Run " + run.getName() + " cannot use a runtime image and hotswap at the same time.");
+            }
+            return useRuntimeImage;
+        }).flatMap(useRuntimeImage -> {
+            if (useRuntimeImage) {
+                return defaultLauncher.zip(createRuntimeImage.flatMap(CreateRuntimeImageTask::getImageDirectory), RuntimeImageLauncher::new);
+            }
+            return run.getHotswap().flatMap(hotswap -> hotswap ? hotswapLauncher : defaultLauncher);
+        });
+        Function<RunModel, Provider<List<Object>>> runLauncherDependencies = run -> run.getUseRuntimeImage()
+                .map(useRuntimeImage -> useRuntimeImage ? List.of(createRuntimeImage) : List.of());
+
         var idePostSyncTask = tasks.register("idePostSync");
 
+        var runtimeClasspath = configurations.named("runtimeClasspath");
+        var extractNestedJarsTask = tasks.register("extractNestedJars", ExtractNestedJarsTask.class, task -> {
+            task.setDescription("Puts the jars nested in the runtime classpath directly on the classpath for runs.");
+            task.getClasspath().from(runtimeClasspath);
+            task.getCacheDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), "caches/neoforge-nested-jars"));
+            task.getClasspathFile().set(layout.getBuildDirectory().file("moddev/nestedJarClasspath.txt"));
+        });
+        var nestedJarClasspath = project.files(extractNestedJarsTask
+                .flatMap(ExtractNestedJarsTask::getClasspathFile)
+                .map(file -> RunUtils.loadClasspathFile(file.getAsFile())));
+
+        // Runs the first run of type "data" as a cacheable task
+        var dataRun = project.provider(() -> extension.getRuns().stream()
+                .filter(run -> "data".equals(run.getType().getOrNull()))
+                .findFirst()
+                .orElseThrow(() -> new GradleException("generateData requires a run of type data.")));
+        // Use the output directory of the run if it passes one, otherwise pass the default
+        var dataRunOutput = dataRun.map(run -> {
+            var programArguments = run.getProgramArguments().get();
+            var outputIndex = programArguments.indexOf("--output");
+            return outputIndex != -1 && outputIndex + 1 < programArguments.size() ? programArguments.get(outputIndex + 1) : "";
+        });
+        tasks.register("generateData", GenerateDataTask.class, task -> {
+            task.setDescription("Runs data generation if any of its inputs changed.");
+            task.getClasspathProvider().from(runtimeClasspath);
+            task.getGameDirectory().set(dataRun.flatMap(RunModel::getGameDirectory));
+            task.getJavaLauncher().set(dataRun.flatMap(runLauncher::apply));
+            task.dependsOn(dataRun.flatMap(runLauncherDependencies::apply));
+            var argsFile = dataRun.flatMap(run -> tasks.named(run.nameOf("prepare", "run"), PrepareRunForIde.class)
+                    .flatMap(PrepareRunForIde::getArgsFile));
+            task.getArgsFile().set(argsFile);
+            task.getNormalizedRoots().add(layout.getProjectDirectory());
+            task.getNormalizedRoots().add(layout.dir(project.provider(() -> project.getGradle().getGradleUserHomeDir())));
+            // Refer to the args file relative to the working directory, since the main class is an input of the task
+            task.getMainClass().set(argsFile.zip(task.getGameDirectory(), (f, gameDirectory) -> {
+                var relativePath = gameDirectory.getAsFile().toPath().toAbsolutePath().relativize(f.getAsFile().toPath().toAbsolutePath());
+                return "@" + relativePath.toString().replace('\\', '/');
+            }));
+            task.getLegacyClasspath().from(dataRun.map(run -> tasks.named(run.nameOf("write", "legacyClasspath"), WriteLegacyClasspath.class)
+                    .get().getEntries()));
+            task.getJvmArgumentProviders().add(RunUtils.getGradleModFoldersProvider(project, dataRun));
+            task.getPassOutputDirectory().set(dataRunOutput.map(String::isEmpty));
+            task.getMods().set(dataRun.flatMap(run -> run.getMods().map(mods -> mods.stream().map(ModModel::getName).toList())));
+            task.getWorkDirectory().set(layout.getBuildDirectory().dir("moddev/generateData"));
+            task.getOutputDirectory().set(dataRunOutput.flatMap(output -> output.isEmpty()
+                    ? project.provider(() -> layout.getProjectDirectory().dir("src/generated/resources"))
+                    // Relative paths are resolved against the game directory by the game
+                    : dataRun.flatMap(RunModel::getGameDirectory).map(gameDirectory -> gameDirectory.dir(output))));
+            task.dependsOn(dataRun.map(run -> run.nameOf("prepare", "run")));
+            task.dependsOn(tasks.named("processResources"));
+        });
+
+        // Runs the GameTests of the first run of type "gameTestServer", sharded across several servers
+        var gameTestRun = project.provider(() -> extension.getRuns().stream()
+                .filter(run -> "gameTestServer".equals(run.getType().getOrNull()))
+                .findFirst()
+                .orElseThrow(() -> new GradleException("gameTest requires a run of type gameTestServer.")));
+        tasks.register("gameTest", GameTestTask.class, task -> {
+            task.setDescription("Runs the GameTests of all mods across several servers.");
+            task.getNamespaces().convention(gameTestRun.flatMap(run -> run.getMods().map(mods -> mods.stream().map(ModModel::getName).toList())));
+            task.getJavaLauncher().set(gameTestRun.flatMap(runLauncher::apply));
+            task.dependsOn(gameTestRun.flatMap(runLauncherDependencies::apply));
+            task.getClasspath().from(runtimeClasspath);
+            task.getArgsFile().set(gameTestRun.flatMap(run -> tasks.named(run.nameOf("prepare", "run"), PrepareRunForIde.class)
+                    .flatMap(PrepareRunForIde::getArgsFile)));
+            task.getJvmArgumentProviders().add(RunUtils.getGradleModFoldersProvider(project, gameTestRun));
+            task.getWorkDirectory().set(layout.getBuildDirectory().dir("moddev/gameTest"));
+            task.getReportsDirectory().set(layout.getBuildDirectory().dir("test-results/gameTest"));
+            task.dependsOn(gameTestRun.map(run -> run.nameOf("prepare", "run")));
+            task.dependsOn(tasks.named("processResources"));
+        });
+
+        // Precomputed class scan data, which ends up next to the classes in the mod folders and the jar.
+        // Opt-in per mod, and only added to the source sets of those mods in this project.
+        project.afterEvaluate(ignored -> {
+            var indexedSourceSets = new LinkedHashSet<SourceSet>();
+            for (var mod : extension.getMods()) {
+                if (mod.getScanIndex().get()) {
+                    indexedSourceSets.addAll(mod.getModSourceSets().get());
+                }
+            }
+            for (var sourceSet : indexedSourceSets) {
+                if (!javaExtension.getSourceSets().contains(sourceSet)) {
+                    continue;
+                }
+                var indexTask = tasks.register(sourceSet.getTaskName("index", "modAnnotations"), IndexModAnnotationsTask.class, task -> {
+                    task.setDescription("Indexes the annotations of the classes of source set " + sourceSet.getName() + ".");
+                    task.getClassesDirs().from(sourceSet.getOutput().getClassesDirs());
+                    task.getOutputDirectory().set(layout.getBuildDirectory().dir("generated/neoforge/scanIndex/" + sourceSet.getName()));
+                });
+                sourceSet.getOutput().dir(Map.of("builtBy", indexTask), indexTask.flatMap(IndexModAnnotationsTask::getOutputDirectory));
+            }
+        });
+
+        javaExtension.getSourceSets().configureEach(sourceSet -> {
+            // Incrementally copy changed resources into the folders that running games read them from.
+            // Use with continuous builds (gradlew -t syncModResources).
+            var processResources = tasks.named(sourceSet.getProcessResourcesTaskName(), ProcessResources.class);
+            var stageResourcesTask = tasks.register(sourceSet.getTaskName("stage", "resources"), Sync.class, task -> {
+                task.setDescription("Processes the resources of source set " + sourceSet.getName() + " for syncing them into a running game.");
+                // Reuse the copy spec of processResources, so that its transforms apply to synced resources as well
+                task.with(processResources.get());
+                task.into(layout.getBuildDirectory().dir("moddev/stagedResources/" + sourceSet.getName()));
+            });
+            tasks.register(sourceSet.getTaskName("sync", "resources"), SyncResourcesTask.class, task -> {
+                task.setDescription("Copies the changed resources of source set " + sourceSet.getName() + " into its output directory.");
+                task.getResources().from(stageResourcesTask);
+                task.getDestination().set(layout.dir(project.provider(() -> sourceSet.getOutput().getResourcesDir())));
+                task.getStateFile().set(layout.getBuildDirectory().file("moddev/" + sourceSet.getTaskName("sync", "resources") + ".txt"));
+                task.mustRunAfter(processResources);
+            });
+        });
+        tasks.register("syncModResources", task -> {
+            task.setDescription("Copies the changed resources of all mods into the folders that running games load them from.");
+            task.dependsOn(project.provider(() -> extension.getMods().stream()
+                    .flatMap(mod -> mod.getModSourceSets().get().stream())
+                    .map(sourceSet -> sourceSet.getTaskName("sync", "resources"))
+                    .distinct()
+                    .toList()));
+        });
+
+        // Benchmarks the first run of type "server", reusing its args-file in a separate game directory
+        var benchmarkRun = project.provider(() -> extension.getRuns().stream()
+                .filter(run -> "server".equals(run.getType().getOrNull()))
+                .findFirst()
+                .orElseThrow(() -> new GradleException("benchmarkServerStartup requires a run of type server.")));
+        tasks.register("benchmarkServerStartup", BenchmarkServerStartupTask.class, task -> {
+            task.setDescription("Measures how long the dedicated server takes to start, and how much memory it uses.");
+            task.getJavaLauncher().set(benchmarkRun.flatMap(runLauncher::apply));
+            task.dependsOn(benchmarkRun.flatMap(runLauncherDependencies::apply));
+            task.getClasspath().from(configurations.named("runtimeClasspath"));
+            task.getArgsFile().set(benchmarkRun.flatMap(run -> tasks.named(run.nameOf("prepare", "run"), PrepareRunForIde.class)
+                    .flatMap(PrepareRunForIde::getArgsFile)));
+            task.getJvmArgumentProviders().add(RunUtils.getGradleModFoldersProvider(project, benchmarkRun));
+            task.getWorkDirectory().set(layout.getBuildDirectory().dir("moddev/benchmarkServerStartup"));
+            task.getReportFile().set(layout.getBuildDirectory().file("moddev/benchmarkServerStartup.json"));
+            task.dependsOn(benchmarkRun.map(run -> run.nameOf("prepare", "run")));
+            task.dependsOn(tasks.named("processResources"));
+        });
+
         extension.getRuns().configureEach(run -> {
             var type = RunUtils.getRequiredType(project, run);
+            var sharedLegacyClasspath = type.map(t -> t.equals("client") ? clientLegacyClasspath : serverLegacyClasspath);
 
-            var legacyClasspathConfiguration = configurations.create(run.nameOf("", "legacyClasspath"), spec -> {
+            var legacyClasspathConfiguration = configurations.register(run.nameOf("", "legacyClasspath"), spec -> {
                 spec.setCanBeResolved(true);
+                spec.getResolutionStrategy().activateDependencyLocking();
                 spec.setCanBeConsumed(false);
                 spec.attributes(attributes -> {
                     attributes.attributeProvider(ATTRIBUTE_DISTRIBUTION, type.map(t -> t.equals("client") ? "client" : "server"));
                     attributes.attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
                 });
-                spec.withDependencies(set -> {
-                    set.addLater(neoForgeModDevLibrariesDependency);
-                });
+                // Make sure the additions do not pull in different versions of libraries than the shared graph
+                spec.getDependencyConstraints().addAllLater(sharedLegacyClasspath
+                        .flatMap(c -> c.getIncoming().getResolutionResult().getRootComponent())
+                        .map(root -> getVersionConstraints(project, root)));
                 spec.extendsFrom(run.getAdditionalRuntimeClasspathConfiguration());
                 spec.getDependencies().addAllLater(run.getAdditionalRuntimeClasspath().getDependencies());
             });
 
             var writeLcpTask = tasks.register(run.nameOf("write", "legacyClasspath"), WriteLegacyClasspath.class, writeLcp -> {
                 writeLcp.getLegacyClasspathFile().convention(layout.getBuildDirectory().file("moddev/" + run.nameOf("", "legacyClasspath") + ".txt"));
+                writeLcp.getPackageIndexFile().convention(run.getClasspathIndex().flatMap(classpathIndex -> classpathIndex
+                        ? layout.getBuildDirectory().file("moddev/" + run.nameOf("", "legacyClasspath") + ".idx")
+                        : project.provider(() -> null)));
+                // Per run, since listings that are no longer used by the run are removed
+                writeLcp.getListingCacheDirectory().set(layout.getBuildDirectory().dir("moddev/classpathListings/" + run.getBaseName()));
+                writeLcp.getEntries().from(sharedLegacyClasspath);
                 writeLcp.getEntries().from(legacyClasspathConfiguration);
-                writeLcp.getEntries().from(createArtifacts.get().getResourcesArtifact());
+                writeLcp.getEntries().from(createArtifacts.flatMap(CreateMinecraftArtifactsTask::getResourcesArtifact));
             });
 
             var runDirectory = layout.getProjectDirectory().dir("run");
             var argsFile = RunUtils.getArgFile(project, run);
+            var startupLog = layout.getBuildDirectory().file("moddev/" + run.nameOf("", "startup") + ".log");
+            var startupReportTask = tasks.register(run.nameOf("", "startupReport"), StartupReportTask.class, task -> {
+                task.setDescription("Writes the startup phase breakdown of the last launch of " + run.getName() + ".");
+                task.getStartupLog().set(startupLog);
+                task.getReportFile().set(layout.getBuildDirectory().file("moddev/" + run.nameOf("", "startup") + ".json"));
+            });
+            var tickReportTask = tasks.register(run.nameOf("", "tickReport"), TickReportTask.class, task -> {
+                task.setDescription("Writes the tick and frame time report of the last launch of " + run.getName() + ".");
+                task.getGameDirectory().set(run.getGameDirectory());
+                task.getReportFile().set(layout.getBuildDirectory().file("moddev/" + run.nameOf("", "ticks") + ".txt"));
+            });
+            var hotswapPortFile = layout.getBuildDirectory().file("moddev/" + run.nameOf("", "hotswap") + ".port");
+            var hotswapTask = tasks.register(run.nameOf("", "hotswap"), HotswapTask.class, task -> {
+                task.setDescription("Pushes changed mod classes into the running game of " + run.getName() + ".");
+                task.getModFolders().set(RunUtils.getModFoldersForGradle(project, run));
+                task.getPortFile().set(hotswapPortFile);
+                task.getStateFile().set(layout.getBuildDirectory().file("moddev/" + run.nameOf("", "hotswap") + ".state"));
+            });
+            // Push the classes automatically whenever the classes of one of the run's mods are compiled
+            javaExtension.getSourceSets().configureEach(sourceSet -> tasks.named(sourceSet.getClassesTaskName()).configure(task -> {
+                task.finalizedBy(run.getHotswap().zip(run.getMods(), (hotswap, mods) -> {
+                    var isModSourceSet = mods.stream().anyMatch(mod -> mod.getModSourceSets().get().contains(sourceSet));
+                    return hotswap && isModSourceSet ? List.of(hotswapTask) : List.of();
+                }));
+            }));
             var writeArgsFileTask = tasks.register(run.nameOf("prepare", "run"), PrepareRunForIde.class, task -> {
                 task.getGameDirectory().set(runDirectory);
                 task.getArgsFile().set(argsFile);
+                task.getLog4jConfigFile().set(layout.getBuildDirectory().file("moddev/" + run.nameOf("", "log4j2") + ".xml"));
+                task.getLoggingProfile().set(run.getLoggingProfile());
                 task.getRunType().set(run.getType());
                 task.getNeoForgeModDevConfig().from(userDevConfigOnly);
                 task.getModules().from(neoForgeModDevModules);
-                task.getLegacyClasspathFile().set(writeLcpTask.get().getLegacyClasspathFile());
+                task.getLegacyClasspathFile().set(writeLcpTask.flatMap(WriteLegacyClasspath::getLegacyClasspathFile));
+                task.getLegacyClasspathIndexFile().set(writeLcpTask.flatMap(WriteLegacyClasspath::getPackageIndexFile));
                 task.getAssetProperties().set(downloadAssets.flatMap(DownloadAssetsTask::getAssetPropertiesFile));
                 task.getSystemProperties().set(run.getSystemProperties().map(props -> {
                     props = new HashMap<>(props);
                     return props;
                 }));
+                task.getJvmArguments().set(run.getJvmArguments());
+                task.getPerformanceProfile().set(run.getPerformanceProfile());
                 task.getProgramArguments().set(run.getProgramArguments());
+                task.getModulesInRuntimeImage().set(run.getUseRuntimeImage());
+                task.getClassDataSharing().set(run.getClassDataSharing());
+                task.getClassDataSharingDirectory().set(layout.getBuildDirectory().dir("moddev/cds/" + run.getBaseName()));
+                task.getStartupReport().set(run.getStartupReport());
+                task.getStartupLog().set(startupLog);
+                task.getTickTelemetry().set(run.getTickTelemetry());
+                task.getHotswap().set(run.getHotswap());
             });
             idePostSyncTask.configure(task -> task.dependsOn(writeArgsFileTask));
 
-            tasks.register(run.nameOf("run", ""), RunGameTask.class, task -> {
-                task.getClasspathProvider().from(configurations.named("runtimeClasspath"));
+            Action<RunGameTask> configureRunTask = task -> {
+                task.getClasspathProvider().from(run.getExtractNestedJars().map(extractNestedJars -> extractNestedJars ? nestedJarClasspath : runtimeClasspath));
+                task.dependsOn(run.getExtractNestedJars().map(extractNestedJars -> extractNestedJars ? List.of(extractNestedJarsTask) : List.of()));
                 task.getGameDirectory().set(run.getGameDirectory());
                 // We use the arg file for runs as well,
                 // using the property from the writeArgsFileTask to record a dependency on that task.
@@ -284,8 +587,22 @@ public class ModDevPluginImpl {
 
                 task.getJvmArgumentProviders().add(RunUtils.getGradleModFoldersProvider(project, run));
 
+                task.getJavaLauncher().set(runLauncher.apply(run));
+                task.dependsOn(runLauncherDependencies.apply(run));
+                task.getHotswapPortFile().set(run.getHotswap().flatMap(hotswap -> hotswap ? hotswapPortFile : project.provider(() -> null)));
+                task.finalizedBy(run.getStartupReport().map(startupReport -> startupReport ? List.of(startupReportTask) : List.of()));
+                task.finalizedBy(run.getTickTelemetry().map(tickTelemetry -> tickTelemetry ? List.of(tickReportTask) : List.of()));
+
                 // TODO: how do we do this in a clean way for all source sets?
                 task.dependsOn(tasks.named("processResources"));
+            };
+            tasks.register(run.nameOf("run", ""), RunGameTask.class, configureRunTask);
+            tasks.register(run.nameOf("profile", ""), ProfileGameTask.class, task -> {
+                configureRunTask.execute(task);
+                task.setDescription("Runs " + run.getName() + " with Java Flight Recorder and summarizes the recording.");
+                task.getRecordingDirectory().set(layout.getBuildDirectory().dir("moddev/profiles"));
+                task.getRecordingName().set(run.getBaseName());
+                task.getModFolders().set(RunUtils.getModFoldersForGradle(project, run));
             });
         });
 
@@ -298,7 +615,10 @@ public class ModDevPluginImpl {
                 taskTriggers.afterSync(idePostSyncTask);
             }
 
-            extension.getRuns().forEach(run -> addIntelliJRunConfiguration(project, extension.getIdea(), run, RunUtils.getArgFile(project, run).get()));
+            // Run configurations are only read by IntelliJ during sync, and computing them resolves the mod content
+            if (project.getProviders().systemProperty("idea.sync.active").map(Boolean::valueOf).getOrElse(false)) {
+                addIntelliJRunConfigurations(project, extension.getIdea(), extension.getRuns());
+            }
         });
 
         // TODO: Not a fan of having an extension that's not under neoforge
@@ -306,26 +626,80 @@ public class ModDevPluginImpl {
         ((JarJarExtension) jarJar).createTaskAndConfiguration();
     }
 
-    private static void addIntelliJRunConfiguration(Project project,
-                                                    ExtraIdeaModel extraIdea,
-                                                    RunModel run,
-                                                    RegularFile argsFile) {
+    private static Configuration createLegacyClasspathConfiguration(Project project,
+                                                                    String name,
+                                                                    String distribution,
+                                                                    Provider<? extends Dependency> librariesDependency) {
+        return project.getConfigurations().create(name, spec -> {
+            spec.setCanBeResolved(true);
+            spec.getResolutionStrategy().activateDependencyLocking();
+            spec.setCanBeConsumed(false);
+            spec.setVisible(false);
+            spec.attributes(attributes -> {
+                attributes.attribute(ATTRIBUTE_DISTRIBUTION, distribution);
+                attributes.attribute(Usage.USAGE_ATTRIBUTE, project.getObjects().named(Usage.class, Usage.JAVA_RUNTIME));
+            });
+            spec.withDependencies(set -> set.addLater(librariesDependency));
+        });
+    }
+
+    /**
+     * Collects the selected versions of all modules in a resolved graph as strict constraints,
+     * so that another configuration can be resolved consistently with it.
+     */
+    private static List<DependencyConstraint> getVersionConstraints(Project project, ResolvedComponentResult root) {
+        var constraints = new ArrayList<DependencyConstraint>();
+        var seen = new HashSet<ResolvedComponentResult>();
+        var queue = new ArrayDeque<ResolvedComponentResult>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            var component = queue.poll();
+            if (!seen.add(component)) {
+                continue;
+            }
+            if (component.getId() instanceof ModuleComponentIdentifier moduleId) {
+                // A regular constraint could still be upgraded, putting two versions of the same module on the classpath
+                var notation = moduleId.getGroup() + ":" + moduleId.getModule();
+                constraints.add(project.getDependencies().getConstraints().create(notation, constraint -> {
+                    constraint.version(version -> version.strictly(moduleId.getVersion()));
+                    constraint.because("Selected by the shared legacy classpath");
+                }));
+            }
+            for (var dependency : component.getDependencies()) {
+                if (dependency instanceof ResolvedDependencyResult resolvedDependency) {
+                    queue.add(resolvedDependency.getSelected());
+                }
+            }
+        }
+        return constraints;
+    }
+
+    private static void addIntelliJRunConfigurations(Project project,
+                                                     ExtraIdeaModel extraIdea,
+                                                     Collection<RunModel> runs) {
         var runConfigurations = getIntelliJRunConfigurations(project);
 
         if (runConfigurations == null) {
-            project.getLogger().debug("Failed to find IntelliJ run configuration container. Not adding run configuration {}", run);
+            project.getLogger().debug("Failed to find IntelliJ run configuration container. Not adding run configurations {}", runs);
             return;
         }
 
-        var a = new Application(StringUtils.capitalize(run.getName()), project);
         var sourceSets = ExtensionUtils.getExtension(project, "sourceSets", SourceSetContainer.class);
-        a.setModuleRef(new ModuleRef(project, sourceSets.getByName("main")));
-        a.setWorkingDirectory(run.getGameDirectory().get().getAsFile().getAbsolutePath());
-        a.setMainClass("@" + argsFile.getAsFile().getAbsolutePath().replace('\\', '/'));
-        a.setEnvs(Map.of(
-                "MOD_CLASSES", RunUtils.getIdeaModFoldersProvider(project, extraIdea, run).getEncodedFolders()
-        ));
-        runConfigurations.add(a);
+        var moduleRef = new ModuleRef(project, sourceSets.getByName("main"));
+        // Most runs share the same set of mods, so only encode the folders once per distinct set
+        var encodedModFolders = new HashMap<Set<ModModel>, String>();
+
+        for (var run : runs) {
+            var argsFile = RunUtils.getArgFile(project, run).get();
+            var a = new Application(StringUtils.capitalize(run.getName()), project);
+            a.setModuleRef(moduleRef);
+            a.setWorkingDirectory(run.getGameDirectory().get().getAsFile().getAbsolutePath());
+            a.setMainClass("@" + argsFile.getAsFile().getAbsolutePath().replace('\\', '/'));
+            a.setEnvs(Map.of(
+                    "MOD_CLASSES", encodedModFolders.computeIfAbsent(run.getMods().get(), ignored -> RunUtils.getIdeaModFoldersProvider(project, extraIdea, run).getEncodedFolders())
+            ));
+            runConfigurations.add(a);
+        }
     }
 
     @Nullable
@@ -355,6 +729,11 @@ public class ModDevPluginImpl {
         return null;
     }
 
+    /**
+     * The local repository needs a placeholder for the Minecraft artifact, so that resolution succeeds before
+     * it has been built. This is only called right before one of the configurations referencing it is resolved,
+     * so that builds not involving Minecraft do not touch the filesystem.
+     */
     private static void createDummyFilesInLocalRepository(ProjectLayout layout) {
         var emptyJarFile = layout.getBuildDirectory().file("repo/minecraft/neoforge-minecraft-joined/local/neoforge-minecraft-joined-local.jar").get().getAsFile().toPath();
         if (!Files.exists(emptyJarFile)) {
@@ -386,39 +765,6 @@ public class ModDevPluginImpl {
             }
         }
     }
-
-    static String guessMavenGav(ResolvedArtifactResult result) {
-        String artifactId;
-        String ext = "";
-        String classifier = null;
-        if (result.getId() instanceof ModuleComponentArtifactIdentifier moduleId) {
-            var artifact = moduleId.getComponentIdentifier().getModule();
-            var version = moduleId.getComponentIdentifier().getVersion();
-            var expectedBasename = artifact + "-" + version;
-            var filename = result.getFile().getName();
-            var startOfExt = filename.lastIndexOf('.');
-            if (startOfExt != -1) {
-                ext = filename.substring(startOfExt + 1);
-                filename = filename.substring(0, startOfExt);
-            }
-
-            if (filename.startsWith(expectedBasename + "-")) {
-                classifier = filename.substring((expectedBasename + "-").length());
-            }
-            artifactId = moduleId.getComponentIdentifier().getGroup() + ":" + artifact + ":" + version;
-        } else {
-            ext = "jar";
-            artifactId = result.getId().getComponentIdentifier().toString();
-        }
-        String gav = artifactId;
-        if (classifier != null) {
-            gav += ":" + classifier;
-        }
-        if (!"jar".equals(ext)) {
-            gav += "@" + ext;
-        }
-        return gav;
-    }
 }
 
 abstract class ModFolder {
@@ -427,6 +773,7 @@ abstract class ModFolder {
     }
 
     @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
     abstract ConfigurableFileCollection getFolders();
 }
 
@@ -0,0 +1,119 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.GradleException;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * JVM presets that can be selected for a run via {@code performanceProfile}.
+ * The heap size, garbage collector and JIT options are derived from the resources of the machine running the game.
+ */
+enum PerformanceProfile {
+    /**
+     * Short GC pauses at the cost of some throughput, for smooth frame times.
+     */
+    LOW_LATENCY("low-latency") {
+        @Override
+        List<String> getJvmArguments(int processors, long totalMemoryMb) {
+            var heapMb = clamp(totalMemoryMb / 4, 2048, 8192);
+            return List.of(
+                    "-Xms" + heapMb + "m",
+                    "-Xmx" + heapMb + "m",
+                    "-XX:+UseG1GC",
+                    "-XX:MaxGCPauseMillis=50",
+                    "-XX:+ParallelRefProcEnabled",
+                    "-XX:ParallelGCThreads=" + Math.max(1, processors - 2),
+                    "-XX:ConcGCThreads=" + Math.max(1, processors / 4),
+                    "-XX:CICompilerCount=" + Math.max(2, processors / 4)
+            );
+        }
+    },
+    /**
+     * Maximum overall throughput, for example for world generation or dedicated servers.
+     */
+    THROUGHPUT("throughput") {
+        @Override
+        List<String> getJvmArguments(int processors, long totalMemoryMb) {
+            var heapMb = clamp(totalMemoryMb / 2, 2048, 16384);
+            return List.of(
+                    "-Xms" + heapMb / 2 + "m",
+                    "-Xmx" + heapMb + "m",
+                    "-XX:+UseParallelGC",
+                    "-XX:ParallelGCThreads=" + processors,
+                    "-XX:ReservedCodeCacheSize=512m"
+            );
+        }
+    },
+    /**
+     * Smallest footprint, for machines that run several game instances or have little memory.
+     */
+    LOW_MEMORY("low-memory") {
+        @Override
+        List<String> getJvmArguments(int processors, long totalMemoryMb) {
+            var heapMb = clamp(totalMemoryMb / 8, 1024, 2048);
+            return List.of(
+                    "-Xms" + Math.min(heapMb, 512) + "m",
+                    "-Xmx" + heapMb + "m",
+                    "-XX:+UseSerialGC",
+                    // C1 only: compiled code is less optimized, but the code cache and compiler threads need much less memory
+                    "-XX:TieredStopAtLevel=1",
+                    "-XX:ReservedCodeCacheSize=64m"
+            );
+        }
+    };
+
+    private static final Pattern COLLECTOR_SELECTION = Pattern.compile("-XX:\\+Use\\w+GC");
+    private static final Pattern XX_OPTION = Pattern.compile("-XX:[+-]?(\\w+).*");
+    private static final Set<String> COLLECTOR_OPTIONS = Set.of("MaxGCPauseMillis", "ParallelRefProcEnabled", "ParallelGCThreads", "ConcGCThreads");
+
+    private final String id;
+
+    PerformanceProfile(String id) {
+        this.id = id;
+    }
+
+    abstract List<String> getJvmArguments(int processors, long totalMemoryMb);
+
+    /**
+     * Computes the JVM arguments for the machine this is called on.
+     * If the user arguments select a garbage collector, the collector options of the preset are left out,
+     * since the JVM refuses to start with more than one collector.
+     */
+    List<String> getJvmArgumentsForHost(List<String> userJvmArguments) {
+        var processors = Runtime.getRuntime().availableProcessors();
+        var operatingSystem = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        var totalMemoryMb = operatingSystem.getTotalMemorySize() / (1024 * 1024);
+        var arguments = getJvmArguments(processors, totalMemoryMb);
+        if (userJvmArguments.stream().noneMatch(argument -> COLLECTOR_SELECTION.matcher(argument).matches())) {
+            return arguments;
+        }
+        return arguments.stream().filter(argument -> !isCollectorArgument(argument)).toList();
+    }
+
+    private static boolean isCollectorArgument(String argument) {
+        if (COLLECTOR_SELECTION.matcher(argument).matches()) {
+            return true;
+        }
+        var option = XX_OPTION.matcher(argument);
+        return option.matches() && COLLECTOR_OPTIONS.contains(option.group(1));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    static PerformanceProfile byName(String name) {
+        for (var profile : values()) {
+            if (profile.id.equals(name)) {
+                return profile;
+            }
+        }
+        throw new GradleException("Unknown performance profile: " + name + ". Available performance profiles: "
+                                  + Arrays.stream(values()).map(p -> p.id).collect(Collectors.joining(", ")));
+    }
+}
@@ -14,6 +14,7 @@ import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputFile;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.PathSensitive;
 import org.gradle.api.tasks.PathSensitivity;
@@ -22,8 +23,11 @@ import org.gradle.api.tasks.TaskAction;
 import javax.inject.Inject;
 import java.io.File;
 import java.io.IOException;
+import java.lang.module.ModuleFinder;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -35,12 +39,28 @@ import java.util.stream.Collectors;
  * This is used only for IDEs.
  */
 abstract class PrepareRunForIde extends DefaultTask {
+    /**
+     * Points to the package index written by {@link WriteLegacyClasspath}.
+     */
+    static final String LEGACY_CLASSPATH_INDEX_PROPERTY = "legacyClassPath.index";
+
+    private static final List<String> TICK_TELEMETRY_RUN_TYPES = List.of("client", "server", "gameTestServer");
+
     @Internal
     public abstract DirectoryProperty getGameDirectory();
 
     @OutputFile
     public abstract RegularFileProperty getArgsFile();
 
+    @OutputFile
+    public abstract RegularFileProperty getLog4jConfigFile();
+
+    /**
+     * One of the names of {@link LoggingProfile}.
+     */
+    @Input
+    public abstract Property<String> getLoggingProfile();
+
     @Classpath
     public abstract ConfigurableFileCollection getNeoForgeModDevConfig();
 
@@ -55,6 +75,14 @@ abstract class PrepareRunForIde extends DefaultTask {
     @PathSensitive(PathSensitivity.RELATIVE)
     abstract RegularFileProperty getLegacyClasspathFile();
 
+    /**
+     * Passed to the game via the {@value #LEGACY_CLASSPATH_INDEX_PROPERTY} system property, if set.
+     */
+    @Optional
+    @InputFile
+    @PathSensitive(PathSensitivity.RELATIVE)
+    abstract RegularFileProperty getLegacyClasspathIndexFile();
+
     @Classpath
     @InputFiles
     abstract ConfigurableFileCollection getModules();
@@ -65,17 +93,72 @@ abstract class PrepareRunForIde extends DefaultTask {
     @Input
     public abstract ListProperty<String> getJvmArguments();
 
+    /**
+     * One of the names of {@link PerformanceProfile}.
+     */
+    @Input
+    @Optional
+    public abstract Property<String> getPerformanceProfile();
+
     @Input
     public abstract ListProperty<String> getProgramArguments();
 
+    /**
+     * If enabled, the modules are expected to be linked into the runtime image that launches the game,
+     * and are not passed on the module path.
+     */
+    @Input
+    public abstract Property<Boolean> getModulesInRuntimeImage();
+
+    @Input
+    public abstract Property<Boolean> getClassDataSharing();
+
+    /**
+     * Where the CDS archives for this run are stored. Only used if {@link #getClassDataSharing()} is enabled.
+     */
+    @Internal
+    public abstract DirectoryProperty getClassDataSharingDirectory();
+
+    @Input
+    public abstract Property<Boolean> getStartupReport();
+
+    /**
+     * Where the game records the events for the startup report. Only used if {@link #getStartupReport()} is enabled.
+     */
+    @Internal
+    public abstract RegularFileProperty getStartupLog();
+
+    /**
+     * Starts Minecraft's built-in profiler, which records tick and frame times.
+     * Only supported for client, server and GameTest server runs.
+     */
+    @Input
+    public abstract Property<Boolean> getTickTelemetry();
+
+    /**
+     * Enables enhanced class redefinition and the HotswapAgent bundled with the JetBrains Runtime.
+     */
+    @Input
+    public abstract Property<Boolean> getHotswap();
+
     @Inject
     public PrepareRunForIde() {
     }
 
     private List<String> getInterpolatedJvmArgs(UserDevRunType runConfig) {
         var result = new ArrayList<String>();
-        for (var jvmArg : runConfig.jvmArgs()) {
-            String arg = jvmArg;
+        var modulesInRuntimeImage = getModulesInRuntimeImage().get();
+        var jvmArgs = runConfig.jvmArgs();
+        for (int i = 0; i < jvmArgs.size(); i++) {
+            String arg = jvmArgs.get(i);
+            if (modulesInRuntimeImage) {
+                if ((arg.equals("-p") || arg.equals("--module-path")) && i + 1 < jvmArgs.size() && jvmArgs.get(i + 1).equals("{modules}")) {
+                    i++;
+                    continue;
+                } else if (arg.equals("ALL-MODULE-PATH")) {
+                    arg = getModuleNames();
+                }
+            }
             if (arg.equals("{modules}")) {
                 arg = getModules().getFiles().stream()
                         .map(File::getAbsolutePath)
@@ -86,6 +169,14 @@ abstract class PrepareRunForIde extends DefaultTask {
         return result;
     }
 
+    private String getModuleNames() {
+        var paths = getModules().getFiles().stream().map(File::toPath).toArray(Path[]::new);
+        return ModuleFinder.of(paths).findAll().stream()
+                .map(reference -> reference.descriptor().name())
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
     @TaskAction
     public void prepareRun() throws IOException {
         // Make sure the run directory exists
@@ -98,6 +189,11 @@ abstract class PrepareRunForIde extends DefaultTask {
         if (runConfig == null) {
             throw new GradleException("Trying to prepare unknown run: " + getRunType().get() + ". Available run types: " + userDevConfig.runs().keySet());
         }
+        // Only the client and server main classes accept --jfrProfile
+        if (getTickTelemetry().get() && !TICK_TELEMETRY_RUN_TYPES.contains(getRunType().get())) {
+            throw new GradleException("tickTelemetry is not supported for runs of type " + getRunType().get()
+                                      + ". Supported run types: " + String.join(", ", TICK_TELEMETRY_RUN_TYPES));
+        }
 
         // Resolve and write all JVM arguments, main class and main program arguments to an args-file
         var lines = new ArrayList<String>();
@@ -105,14 +201,32 @@ abstract class PrepareRunForIde extends DefaultTask {
         lines.addAll(getInterpolatedJvmArgs(runConfig));
 
         // Write log4j2 configuration file
-        File log4j2xml;
-        try {
-            log4j2xml = RunUtils.writeLog4j2Configuration(runDir);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        var log4j2xml = getLog4jConfigFile().get().getAsFile();
+        var startupLog = getStartupReport().get() ? getStartupLog().get().getAsFile().toPath() : null;
+        RunUtils.writeLog4j2Configuration(LoggingProfile.byName(getLoggingProfile().get()), startupLog, log4j2xml.toPath());
+
+        if (getClassDataSharing().get()) {
+            var archive = getClassDataSharingArchive();
+            lines.add("");
+            lines.add("# Class Data Sharing");
+            lines.add("-XX:+AutoCreateSharedArchive");
+            lines.add("\"-XX:SharedArchiveFile=" + archive.toAbsolutePath().toString().replace("\\", "\\\\") + "\"");
+        }
+
+        if (getHotswap().get()) {
+            lines.add("");
+            lines.add("# Hotswap (requires the JetBrains Runtime)");
+            lines.add("-XX:+AllowEnhancedClassRedefinition");
+            lines.add("-XX:HotswapAgent=core");
         }
 
         var userJvmArgs = getJvmArguments().get();
+        if (getPerformanceProfile().isPresent()) {
+            lines.add("");
+            lines.add("# Performance Profile");
+            lines.addAll(PerformanceProfile.byName(getPerformanceProfile().get()).getJvmArgumentsForHost(userJvmArgs));
+        }
+
         if (!userJvmArgs.isEmpty()) {
             lines.add("");
             lines.add("# User JVM Arguments");
@@ -139,6 +253,10 @@ abstract class PrepareRunForIde extends DefaultTask {
             addSystemProp(prop.getKey(), propValue, lines);
         }
 
+        if (getLegacyClasspathIndexFile().isPresent()) {
+            addSystemProp(LEGACY_CLASSPATH_INDEX_PROPERTY, getLegacyClasspathIndexFile().getAsFile().get().getAbsolutePath(), lines);
+        }
+
         for (var entry : getSystemProperties().get().entrySet()) {
             addSystemProp(entry.getKey(), entry.getValue(), lines);
         }
@@ -160,12 +278,51 @@ abstract class PrepareRunForIde extends DefaultTask {
             lines.add("\"" + arg.replace("\\", "\\\\") + "\"");
         }
 
+        if (getTickTelemetry().get()) {
+            lines.add("# Tick Telemetry");
+            lines.add("--jfrProfile");
+        }
+
         lines.add("# User Supplied Program Arguments");
         lines.addAll(getProgramArguments().get());
 
         FileUtils.writeLinesSafe(getArgsFile().get().getAsFile().toPath(), lines);
     }
 
+    /**
+     * The archive is keyed by the module path and the legacy classpath, so that an archive recorded for
+     * a different classpath is never used. The JVM itself checks that the archive matches the running JVM,
+     * and recreates it otherwise.
+     */
+    private Path getClassDataSharingArchive() throws IOException {
+        var digest = FileUtils.newSha1Digest();
+        for (var module : getModules().getFiles()) {
+            FileUtils.updateDigest(digest, module);
+        }
+        for (var entry : Files.readAllLines(getLegacyClasspathFile().getAsFile().get().toPath())) {
+            if (!entry.isBlank()) {
+                FileUtils.updateDigest(digest, new File(entry));
+            }
+        }
+        var key = HexFormat.of().formatHex(digest.digest());
+
+        var archiveDir = getClassDataSharingDirectory().get().getAsFile().toPath();
+        var archive = archiveDir.resolve(key + ".jsa");
+        // Archives recorded for a previous classpath will never be used again
+        if (Files.isDirectory(archiveDir)) {
+            try (var stream = Files.list(archiveDir)) {
+                for (var file : (Iterable<Path>) stream::iterator) {
+                    if (!file.equals(archive)) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } else {
+            Files.createDirectories(archiveDir);
+        }
+        return archive;
+    }
+
     private static void addSystemProp(String name, String value, List<String> lines) {
         lines.add("\"-D" + name + "=" + value.replace("\\", "\\\\") + "\"");
     }
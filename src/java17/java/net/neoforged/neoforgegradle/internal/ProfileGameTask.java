@@ -0,0 +1,79 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.work.DisableCachingByDefault;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs the game like {@link RunGameTask}, but with Java Flight Recorder enabled. After the game exits,
+ * the recording is summarized into a text file next to it, including which mods the CPU time and allocations
+ * can be attributed to.
+ */
+@DisableCachingByDefault
+public abstract class ProfileGameTask extends RunGameTask {
+    /**
+     * Based on the JDK's {@code profile} settings, with method sampling and allocation sampling turned up.
+     */
+    private static final String RECORDING_SETTINGS = "settings=profile,method-profiling=high,allocation-profiling=high";
+
+    @Internal
+    public abstract DirectoryProperty getRecordingDirectory();
+
+    @Internal
+    public abstract Property<String> getRecordingName();
+
+    /**
+     * The content of each mod, used to attribute CPU time and allocations to mods in the summary.
+     */
+    @Internal
+    abstract MapProperty<String, ModFolder> getModFolders();
+
+    @Inject
+    public ProfileGameTask() {
+    }
+
+    @Override
+    public void exec() {
+        var recording = createRecordingFile();
+        jvmArgs("-XX:StartFlightRecording=" + RECORDING_SETTINGS + ",dumponexit=true,filename=" + recording.toAbsolutePath());
+
+        super.exec();
+
+        if (!Files.isRegularFile(recording)) {
+            getLogger().warn("The game did not write a flight recording to {}", recording);
+            return;
+        }
+        var summary = recording.resolveSibling(recording.getFileName().toString().replace(".jfr", ".txt"));
+        try {
+            JfrSummary.write(recording, ModClassIndex.create(getModFolders().get()), summary);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to summarize flight recording " + recording, e);
+        }
+        getLogger().lifecycle("Flight recording: {}", recording);
+        getLogger().lifecycle("Summary: {}", summary);
+    }
+
+    /**
+     * Not named like a getter, since Gradle would then validate it as an unannotated task property.
+     */
+    private Path createRecordingFile() {
+        var directory = getRecordingDirectory().get().getAsFile().toPath();
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create profile directory", e);
+        }
+        var timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        return directory.resolve(getRecordingName().get() + "-" + timestamp + ".jfr");
+    }
+}
@@ -2,6 +2,7 @@ package net.neoforged.neoforgegradle.internal;
 
 import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.Classpath;
 import org.gradle.api.tasks.InputFiles;
 import org.gradle.api.tasks.Internal;
@@ -12,6 +13,8 @@ import org.gradle.work.DisableCachingByDefault;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
 import java.nio.file.Files;
 
 /**
@@ -28,6 +31,13 @@ public abstract class RunGameTask extends JavaExec {
     @Internal
     public abstract DirectoryProperty getGameDirectory();
 
+    /**
+     * If set, the game is started with a debug agent that {@link HotswapTask} uses to push changed classes.
+     * Its port is written to this file while the game is running.
+     */
+    @Internal
+    public abstract RegularFileProperty getHotswapPortFile();
+
     @Inject
     public RunGameTask() {
     }
@@ -44,9 +54,38 @@ public abstract class RunGameTask extends JavaExec {
 
         classpath(getClasspathProvider());
         setWorkingDir(runDir);
-        super.exec();
+
+        if (!getHotswapPortFile().isPresent()) {
+            super.exec();
+            return;
+        }
+
+        var portFile = getHotswapPortFile().get().getAsFile().toPath();
+        var port = findFreePort();
+        jvmArgs("-agentlib:jdwp=transport=dt_socket,server=y,suspend=n,address=127.0.0.1:" + port);
+        try {
+            Files.createDirectories(portFile.getParent());
+            Files.writeString(portFile, String.valueOf(port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write hotswap port file", e);
+        }
+        try {
+            super.exec();
+        } finally {
+            try {
+                Files.deleteIfExists(portFile);
+            } catch (IOException ignored) {
+            }
+        }
         // Enable debug logging; doesn't work for FML???
 //            runClientTask.systemProperty("forge.logging.console.level", "debug");
     }
 
+    private static int findFreePort() {
+        try (var socket = new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to find a free port for hotswapping", e);
+        }
+    }
 }
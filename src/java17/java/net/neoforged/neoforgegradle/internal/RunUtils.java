@@ -4,12 +4,14 @@ import net.neoforged.neoforgegradle.dsl.ExtraIdeaModel;
 import net.neoforged.neoforgegradle.dsl.InternalModelHelper;
 import net.neoforged.neoforgegradle.dsl.ModModel;
 import net.neoforged.neoforgegradle.dsl.RunModel;
+import net.neoforged.neoforgegradle.internal.utils.FileUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.Project;
 import org.gradle.api.file.RegularFile;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.process.CommandLineArgumentProvider;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.BufferedInputStream;
 import java.io.File;
@@ -17,11 +19,18 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.stream.Collectors;
 
 final class RunUtils {
+    /**
+     * Number of log events that can be queued by the async appenders before logging threads have to wait.
+     */
+    private static final int ASYNC_BUFFER_SIZE = 8192;
+
     private RunUtils() {
     }
 
@@ -51,10 +60,26 @@ final class RunUtils {
         );
     }
 
-    public static File writeLog4j2Configuration(File runDir) throws IOException {
-        var log4j2Xml = new File(runDir, "log4j2.xml");
+    /**
+     * Reads a classpath written as one absolute path per line.
+     */
+    public static List<File> loadClasspathFile(File file) {
+        try {
+            return Files.readAllLines(file.toPath()).stream()
+                    .filter(line -> !line.isBlank())
+                    .map(File::new)
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read classpath file " + file, e);
+        }
+    }
 
-        Files.writeString(log4j2Xml.toPath(), """
+    /**
+     * @param startupLog If not null, the events needed for the {@link StartupReport} are additionally written to this file.
+     */
+    public static void writeLog4j2Configuration(LoggingProfile profile, @Nullable Path startupLog, Path destination) throws IOException {
+        var xml = new StringBuilder();
+        xml.append("""
                 <?xml version="1.0" encoding="UTF-8"?>
                 <Configuration status="warn" shutdownHook="disable">
                     <filters>
@@ -102,6 +127,9 @@ final class RunUtils {
                             </Policies>
                             <DefaultRolloverStrategy max="99" fileIndex="min"/>
                         </RollingRandomAccessFile>
+                """);
+        if (profile.debugFileLevel() != null) {
+            xml.append("""
                         <RollingRandomAccessFile name="DebugFile" fileName="logs/debug.log" filePattern="logs/debug-%i.log.gz">
                             <PatternLayout pattern="[%d{ddMMMyyyy HH:mm:ss.SSS}] [%t/%level] [%logger/%markerSimpleName]: %minecraftFormatting{%msg{nolookup}}{strip}%n%xEx"/>
                             <Policies>
@@ -110,6 +138,30 @@ final class RunUtils {
                             </Policies>
                             <DefaultRolloverStrategy max="5" fileIndex="min"/>
                         </RollingRandomAccessFile>
+                """);
+        }
+        if (profile.async()) {
+            // Hand off events to a background thread through a bounded queue, so that the game threads do not wait on I/O.
+            // This uses Async appenders, since async loggers would require the LMAX disruptor on the game's classpath.
+            xml.append("""
+                            <Async name="AsyncConsole" bufferSize="%1$d">
+                                <AppenderRef ref="Console"/>
+                            </Async>
+                            <Async name="AsyncFile" bufferSize="%1$d">
+                                <AppenderRef ref="File"/>
+                            </Async>
+                    """.formatted(ASYNC_BUFFER_SIZE));
+        }
+        if (startupLog != null) {
+            xml.append("""
+                        <File name="StartupTimings" fileName="%s" append="false">
+                            <PatternLayout pattern="%s"/>
+                        </File>
+                """.formatted(escapeXml(startupLog.toAbsolutePath().toString()), StartupReport.getLogPattern().replace("\t", "&#9;")));
+        }
+        var consoleRef = profile.async() ? "AsyncConsole" : "Console";
+        var fileRef = profile.async() ? "AsyncFile" : "File";
+        xml.append("""
                     </Appenders>
                     <Loggers>
                         <!-- make sure mojang's logging is set to 'info' so that their LOGGER.isDebugEnabled() behavior isn't active -->
@@ -125,18 +177,43 @@ final class RunUtils {
                             </filters>
                         </Logger>
 
-                        <Root level="debug">
-                            <AppenderRef ref="Console" level="debug"/>
+                %s
+                        <Root level="%s">
+                            <AppenderRef ref="%s" level="%s"/>
                             <AppenderRef ref="ServerGuiConsole" level="${sys:forge.logging.console.level:-info}"/>
-                            <AppenderRef ref="File" level="${sys:forge.logging.file.level:-info}"/>
-                            <AppenderRef ref="DebugFile" level="${sys:forge.logging.debugFile.level:-debug}"/>
+                            <AppenderRef ref="%s" level="${sys:forge.logging.file.level:-info}"/>
+                """.formatted(getStartupLoggers(startupLog), profile.rootLevel(), consoleRef, profile.consoleLevel(), fileRef));
+        if (profile.debugFileLevel() != null) {
+            xml.append("""
+                                <AppenderRef ref="DebugFile" level="${sys:forge.logging.debugFile.level:-%s}"/>
+                    """.formatted(profile.debugFileLevel()));
+        }
+        xml.append("""
                         </Root>
                     </Loggers>
                 </Configuration>
-
                 """);
 
-        return log4j2Xml;
+        FileUtils.writeStringSafe(destination, xml.toString());
+    }
+
+    private static String getStartupLoggers(@Nullable Path startupLog) {
+        if (startupLog == null) {
+            return "";
+        }
+        var result = new StringBuilder("<!-- Record the events marking the startup phases, in addition to the normal output -->");
+        for (var loggerName : StartupReport.getLoggerNames()) {
+            result.append("""
+
+                            <Logger name="%s">
+                                <AppenderRef ref="StartupTimings"/>
+                            </Logger>""".formatted(loggerName));
+        }
+        return result.append("\n").toString();
+    }
+
+    private static String escapeXml(String text) {
+        return text.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
     }
 
     public static Provider<RegularFile> getArgFile(Project project, RunModel run) {
@@ -149,6 +226,15 @@ final class RunUtils {
         return modFoldersProvider;
     }
 
+    /**
+     * Like {@link #getGradleModFoldersProvider(Project, RunModel)}, for a run that is only known lazily.
+     */
+    public static CommandLineArgumentProvider getGradleModFoldersProvider(Project project, Provider<RunModel> run) {
+        var modFoldersProvider = project.getObjects().newInstance(ModFoldersProvider.class);
+        modFoldersProvider.getModFolders().set(run.flatMap(r -> getModFoldersForGradle(project, r)));
+        return modFoldersProvider;
+    }
+
     public static ModFoldersProvider getIdeaModFoldersProvider(Project project, ExtraIdeaModel idea, RunModel run) {
         var modFoldersProvider = project.getObjects().newInstance(ModFoldersProvider.class);
         modFoldersProvider.getModFolders().set(idea.getRunWithIdea().flatMap(runWithIdea -> {
@@ -177,7 +263,7 @@ final class RunUtils {
         return sourceSet.getName().equals(SourceSet.MAIN_SOURCE_SET_NAME) ? "production" : sourceSet.getName();
     }
 
-    private static Provider<Map<String, ModFolder>> getModFoldersForGradle(Project project, RunModel run) {
+    static Provider<Map<String, ModFolder>> getModFoldersForGradle(Project project, RunModel run) {
         return run.getMods().map(mods -> mods.stream()
                 .collect(Collectors.toMap(ModModel::getName, mod -> {
                     var modFolder = project.getObjects().newInstance(ModFolder.class);
@@ -185,6 +271,7 @@ final class RunUtils {
                     for (var sourceSet : mod.getModSourceSets().get()) {
                         modFolder.getFolders().from(sourceSet.getOutput().getClassesDirs());
                         modFolder.getFolders().from(sourceSet.getOutput().getResourcesDir());
+                        modFolder.getFolders().from(sourceSet.getOutput().getDirs());
                     }
                     return modFolder;
                 })));
@@ -0,0 +1,32 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.RegularFile;
+import org.gradle.jvm.toolchain.JavaInstallationMetadata;
+import org.gradle.jvm.toolchain.JavaLauncher;
+
+import java.io.File;
+
+/**
+ * Launches the java executable of a runtime image created by {@link CreateRuntimeImageTask}.
+ * The image is linked from the JDK described by the metadata, so the image reports the same version and vendor.
+ */
+final class RuntimeImageLauncher implements JavaLauncher {
+    private final JavaInstallationMetadata metadata;
+    private final RegularFile executablePath;
+
+    RuntimeImageLauncher(JavaLauncher linkedFrom, Directory imageDirectory) {
+        this.metadata = linkedFrom.getMetadata();
+        this.executablePath = imageDirectory.file("bin/" + (File.separatorChar == '\\' ? "java.exe" : "java"));
+    }
+
+    @Override
+    public JavaInstallationMetadata getMetadata() {
+        return metadata;
+    }
+
+    @Override
+    public RegularFile getExecutablePath() {
+        return executablePath;
+    }
+}
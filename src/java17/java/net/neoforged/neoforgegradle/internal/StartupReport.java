@@ -0,0 +1,104 @@
+package net.neoforged.neoforgegradle.internal;
+
+import com.google.gson.GsonBuilder;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Derives a breakdown of the game's startup phases from a log written by the game.
+ * <p>
+ * The log is written by an additional appender in the generated log4j2 configuration, which records the time since
+ * JVM start, the logger and the message of events from the loggers that mark the beginning of a phase.
+ * The start of a phase is the first event matching it.
+ */
+final class StartupReport {
+    private static final List<Phase> PHASES = List.of(
+            new Phase("bootstrap", "cpw.mods.modlauncher", null),
+            new Phase("modDiscovery", "net.neoforged.fml.loading.moddiscovery", null),
+            new Phase("classScanning", "net.neoforged.fml.loading.modscan", null),
+            new Phase("moduleLayer", "cpw.mods.modlauncher", "Launching target"),
+            new Phase("registrySetup", "net.neoforged.neoforge.registries", null),
+            // Dedicated server
+            new Phase("ready", "net.minecraft.server", "Done ("),
+            // Client: the sound engine is started once resources are loaded, right before the main menu is shown
+            new Phase("ready", "net.minecraft.client.sounds", "Sound engine started")
+    );
+
+    private StartupReport() {
+    }
+
+    /**
+     * The loggers whose events have to be written to the startup log.
+     */
+    static Set<String> getLoggerNames() {
+        var result = new LinkedHashSet<String>();
+        for (var phase : PHASES) {
+            result.add(phase.loggerPrefix());
+        }
+        return result;
+    }
+
+    /**
+     * The log4j2 pattern of the startup log. Must match what {@link #write} parses.
+     */
+    static String getLogPattern() {
+        return "%r\t%c\t%m{nolookup}%n";
+    }
+
+    static void write(Path startupLog, Path reportFile) throws IOException {
+        var phaseStarts = new LinkedHashMap<String, Long>();
+        phaseStarts.put("jvmStart", 0L);
+        for (var line : Files.readAllLines(startupLog)) {
+            var parts = line.split("\t", 3);
+            if (parts.length != 3) {
+                continue; // Continuation of a multi-line message
+            }
+            long time;
+            try {
+                time = Long.parseLong(parts[0]);
+            } catch (NumberFormatException ignored) {
+                continue;
+            }
+            for (var phase : PHASES) {
+                if (!phaseStarts.containsKey(phase.name()) && phase.matches(parts[1], parts[2])) {
+                    phaseStarts.put(phase.name(), time);
+                }
+            }
+        }
+
+        // Each phase lasts until the next phase that was found starts
+        var names = new ArrayList<>(phaseStarts.keySet());
+        names.sort((a, b) -> Long.compare(phaseStarts.get(a), phaseStarts.get(b)));
+        var phases = new ArrayList<Map<String, Object>>();
+        for (int i = 0; i < names.size(); i++) {
+            var phase = new LinkedHashMap<String, Object>();
+            var start = phaseStarts.get(names.get(i));
+            phase.put("name", names.get(i));
+            phase.put("startMillis", start);
+            if (i + 1 < names.size()) {
+                phase.put("durationMillis", phaseStarts.get(names.get(i + 1)) - start);
+            }
+            phases.add(phase);
+        }
+
+        var report = new LinkedHashMap<String, Object>();
+        report.put("timeToReadyMillis", phaseStarts.get("ready"));
+        report.put("phases", phases);
+        Files.writeString(reportFile, new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(report));
+    }
+
+    private record Phase(String name, String loggerPrefix, @Nullable String messagePrefix) {
+        boolean matches(String logger, String message) {
+            return logger.startsWith(loggerPrefix) && (messagePrefix == null || message.startsWith(messagePrefix));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Writes the startup phase breakdown of the last launch of a run as JSON.
+ */
+@DisableCachingByDefault(because = "The startup log is written by the game, outside of Gradle's control")
+abstract class StartupReportTask extends DefaultTask {
+    @Inject
+    public StartupReportTask() {
+        // The log is rewritten by every launch of the game, regardless of whether it was started by Gradle
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @Internal
+    abstract RegularFileProperty getStartupLog();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @TaskAction
+    public void writeReport() throws IOException {
+        var startupLog = getStartupLog().get().getAsFile().toPath();
+        if (!Files.exists(startupLog)) {
+            throw new GradleException("No startup log found at " + startupLog + ". Launch the game with startupReport enabled first.");
+        }
+
+        var reportFile = getReportFile().get().getAsFile().toPath();
+        StartupReport.write(startupLog, reportFile);
+        getLogger().lifecycle("Wrote startup report to {}", reportFile);
+    }
+}
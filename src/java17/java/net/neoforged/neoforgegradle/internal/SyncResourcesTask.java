@@ -0,0 +1,81 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.DisableCachingByDefault;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Copies only the resources that changed since the last sync into the resources output directory of a source set,
+ * which is where running games load them from via {@code fml.modFolders}.
+ * <p>
+ * The resources are staged using the copy spec of {@code processResources}, so they include all of its transforms.
+ * The resources output directory belongs to {@code processResources}, so it is not declared as an output here,
+ * which would make their outputs overlap. {@code processResources} always runs first if both are scheduled.
+ */
+@DisableCachingByDefault(because = "Only copies files")
+abstract class SyncResourcesTask extends DefaultTask {
+    @Inject
+    public SyncResourcesTask() {
+    }
+
+    /**
+     * The resources as processed by {@code processResources}.
+     */
+    @Incremental
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    abstract ConfigurableFileCollection getResources();
+
+    @Internal
+    abstract DirectoryProperty getDestination();
+
+    /**
+     * Records the last sync, so that Gradle tracks this task's history.
+     */
+    @OutputFile
+    abstract RegularFileProperty getStateFile();
+
+    @TaskAction
+    public void sync(InputChanges inputChanges) throws IOException {
+        var destination = getDestination().get().getAsFile().toPath();
+        int copied = 0;
+        int removed = 0;
+        for (var change : inputChanges.getFileChanges(getResources())) {
+            if (change.getFileType() == FileType.DIRECTORY) {
+                continue;
+            }
+            var target = destination.resolve(change.getNormalizedPath());
+            if (change.getChangeType() == ChangeType.REMOVED) {
+                if (Files.deleteIfExists(target)) {
+                    removed++;
+                }
+            } else {
+                Files.createDirectories(target.getParent());
+                Files.copy(change.getFile().toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+                copied++;
+            }
+        }
+
+        Files.writeString(getStateFile().get().getAsFile().toPath(), copied + " copied, " + removed + " removed\n");
+        if (inputChanges.isIncremental()) {
+            getLogger().lifecycle("Synced resources: {} copied, {} removed. Press F3+T in the client or run /reload on the server to apply them.", copied, removed);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package net.neoforged.neoforgegradle.internal;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Summarizes the tick and frame times from a recording made by Minecraft's built-in profiler ({@code --jfrProfile}).
+ * <p>
+ * Minecraft reports the average server tick time once per second, and the client's frames per second.
+ * For the slowest of these intervals, the stack samples of the server thread are folded into a flame summary.
+ */
+final class TickReport {
+    private static final String SERVER_THREAD = "Server thread";
+    private static final int SLOWEST_INTERVALS = 10;
+    private static final int FLAME_DEPTH = 8;
+    private static final int FLAME_ENTRIES = 15;
+
+    private final List<Interval> tickTimes = new ArrayList<>();
+    private final List<Integer> framesPerSecond = new ArrayList<>();
+    private final List<Sample> serverThreadSamples = new ArrayList<>();
+
+    private TickReport() {
+    }
+
+    static void write(Path recording, Path destination) throws IOException {
+        var report = new TickReport();
+        try (var file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                report.accept(file.readEvent());
+            }
+        }
+        Files.writeString(destination, report.format(recording));
+    }
+
+    private void accept(RecordedEvent event) {
+        switch (event.getEventType().getName()) {
+            case "minecraft.ServerTickTime" -> {
+                if (event.hasField("averageTickDuration")) {
+                    // Periodic event that covers the second before it
+                    var end = event.getStartTime();
+                    tickTimes.add(new Interval(end.minusSeconds(1), end, event.getDuration("averageTickDuration")));
+                }
+            }
+            case "minecraft.ClientFps" -> {
+                if (event.hasField("fps")) {
+                    framesPerSecond.add(event.getInt("fps"));
+                }
+            }
+            case "jdk.ExecutionSample" -> {
+                var thread = event.getThread("sampledThread");
+                var stackTrace = event.getStackTrace();
+                if (thread != null && SERVER_THREAD.equals(thread.getJavaName()) && stackTrace != null) {
+                    // Folded from the outermost frame to the innermost one
+                    var frames = stackTrace.getFrames();
+                    var folded = new ArrayList<String>();
+                    for (int i = Math.min(frames.size(), FLAME_DEPTH) - 1; i >= 0; i--) {
+                        folded.add(JfrSummary.formatFrame(frames.get(i)));
+                    }
+                    serverThreadSamples.add(new Sample(event.getStartTime(), String.join(";", folded)));
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private String format(Path recording) {
+        var result = new StringBuilder();
+        result.append("Tick report for ").append(recording.getFileName()).append("\n");
+
+        result.append("\nServer tick time (average per second)\n");
+        if (tickTimes.isEmpty()) {
+            result.append("  (none recorded)\n");
+        } else {
+            var millis = tickTimes.stream().mapToDouble(i -> i.tickTime().toNanos() / 1_000_000.0).sorted().toArray();
+            result.append("  p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms over %d seconds%n".formatted(
+                    percentile(millis, 50), percentile(millis, 95), percentile(millis, 99), millis[millis.length - 1], millis.length));
+        }
+
+        result.append("\nClient frames per second\n");
+        if (framesPerSecond.isEmpty()) {
+            result.append("  (none recorded)\n");
+        } else {
+            var fps = framesPerSecond.stream().mapToDouble(Integer::doubleValue).sorted().toArray();
+            // For frame rates, the low percentiles are the interesting ones
+            result.append("  median %.0f, 5th percentile %.0f, 1st percentile %.0f, min %.0f%n".formatted(
+                    percentile(fps, 50), percentile(fps, 5), percentile(fps, 1), fps[0]));
+        }
+
+        var slowest = tickTimes.stream()
+                .sorted(Comparator.comparing(Interval::tickTime).reversed())
+                .limit(SLOWEST_INTERVALS)
+                .toList();
+        if (!slowest.isEmpty()) {
+            result.append("\nSlowest seconds\n");
+            var stacks = new HashMap<String, Long>();
+            for (var interval : slowest) {
+                result.append("  %s  %.2f ms%n".formatted(interval.start(), interval.tickTime().toNanos() / 1_000_000.0));
+                for (var sample : serverThreadSamples) {
+                    if (!sample.time().isBefore(interval.start()) && sample.time().isBefore(interval.end())) {
+                        stacks.merge(sample.foldedStack(), 1L, Long::sum);
+                    }
+                }
+            }
+
+            result.append("\nServer thread stacks during the slowest seconds (folded, outermost frame first)\n");
+            if (stacks.isEmpty()) {
+                result.append("  (no samples)\n");
+            } else {
+                result.append(stacks.entrySet().stream()
+                        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                        .limit(FLAME_ENTRIES)
+                        .map(entry -> "  %6d  %s".formatted(entry.getValue(), entry.getKey()))
+                        .collect(Collectors.joining("\n", "", "\n")));
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Nearest-rank percentile of sorted values.
+     */
+    private static double percentile(double[] sorted, int percentile) {
+        var rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private record Interval(Instant start, Instant end, Duration tickTime) {
+    }
+
+    private record Sample(Instant time, String foldedStack) {
+    }
+}
@@ -0,0 +1,54 @@
+package net.neoforged.neoforgegradle.internal;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+/**
+ * Writes a tick and frame time report for the most recent recording of Minecraft's built-in profiler
+ * in the game directory of a run.
+ */
+@DisableCachingByDefault(because = "The recording is written by the game, outside of Gradle's control")
+abstract class TickReportTask extends DefaultTask {
+    @Inject
+    public TickReportTask() {
+        getOutputs().upToDateWhen(task -> false);
+    }
+
+    @Internal
+    abstract DirectoryProperty getGameDirectory();
+
+    @OutputFile
+    abstract RegularFileProperty getReportFile();
+
+    @TaskAction
+    public void writeReport() throws IOException {
+        var profilingDir = getGameDirectory().get().getAsFile().toPath().resolve("debug/profiling");
+        Path recording = null;
+        if (Files.isDirectory(profilingDir)) {
+            try (var stream = Files.walk(profilingDir)) {
+                recording = stream.filter(p -> p.getFileName().toString().endsWith(".jfr"))
+                        .max(Comparator.comparing(p -> p.toFile().lastModified()))
+                        .orElse(null);
+            }
+        }
+        if (recording == null) {
+            throw new GradleException("No recording found in " + profilingDir + ". Launch the game with tickTelemetry enabled first.");
+        }
+
+        var reportFile = getReportFile().get().getAsFile().toPath();
+        TickReport.write(recording, reportFile);
+        getLogger().lifecycle("Wrote tick report to {}", reportFile);
+    }
+}
@@ -3,16 +3,36 @@ package net.neoforged.neoforgegradle.internal;
 import net.neoforged.neoforgegradle.internal.utils.FileUtils;
 import org.gradle.api.DefaultTask;
 import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 
 import javax.inject.Inject;
+import java.io.DataOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.zip.ZipFile;
 
 abstract class WriteLegacyClasspath extends DefaultTask {
+    /**
+     * "NFPI"
+     */
+    private static final int PACKAGE_INDEX_MAGIC = 0x4E465049;
+    private static final int PACKAGE_INDEX_VERSION = 1;
+
     @Inject
     public WriteLegacyClasspath() {
     }
@@ -23,15 +43,112 @@ abstract class WriteLegacyClasspath extends DefaultTask {
     @OutputFile
     abstract RegularFileProperty getLegacyClasspathFile();
 
+    /**
+     * Maps each package, or resource directory, to the entries of the legacy classpath that contain it.
+     * <p>
+     * The format is: the magic number and the version as ints, the number of entries as an int followed by their
+     * absolute paths in the same order as in the legacy classpath file, and the number of packages as an int followed by
+     * each package name (separated by {@code /}, empty for the root) together with the number and indices of the entries
+     * containing it. Strings are written in modified UTF-8, as by {@link DataOutputStream#writeUTF}.
+     * <p>
+     * Only written if set.
+     */
+    @Optional
+    @OutputFile
+    abstract RegularFileProperty getPackageIndexFile();
+
+    /**
+     * Caches the packages contained in each entry, so that only new or modified jars have to be listed.
+     * Listings of jars that are no longer on the legacy classpath are removed.
+     */
+    @Internal
+    abstract DirectoryProperty getListingCacheDirectory();
+
     @TaskAction
     public void writeLegacyClasspath() throws IOException {
         var legacyClasspath = new StringBuilder();
         // Copy the entries to a tree set to ensure deterministic order if we have to debug classpath problems...
-        for (var entry : new TreeSet<>(getEntries().getFiles())) {
+        var entries = new ArrayList<>(new TreeSet<>(getEntries().getFiles()));
+        for (var entry : entries) {
             legacyClasspath.append(entry.getAbsolutePath()).append(System.lineSeparator());
         }
 
         var destination = getLegacyClasspathFile().getAsFile().get().toPath();
         FileUtils.writeStringSafe(destination, legacyClasspath.toString());
+
+        if (getPackageIndexFile().isPresent()) {
+            writePackageIndex(entries);
+        }
+    }
+
+    private void writePackageIndex(List<File> entries) throws IOException {
+        var listingCacheDirectory = getListingCacheDirectory().get().getAsFile().toPath();
+        var usedListings = new HashSet<Path>();
+        var entriesByPackage = new TreeMap<String, List<Integer>>();
+        for (int i = 0; i < entries.size(); i++) {
+            for (var packageName : getPackages(entries.get(i), listingCacheDirectory, usedListings)) {
+                entriesByPackage.computeIfAbsent(packageName, ignored -> new ArrayList<>()).add(i);
+            }
+        }
+
+        if (Files.isDirectory(listingCacheDirectory)) {
+            try (var listings = Files.list(listingCacheDirectory)) {
+                for (var listing : listings.toList()) {
+                    if (!usedListings.contains(listing)) {
+                        Files.delete(listing);
+                    }
+                }
+            }
+        }
+
+        try (var out = new DataOutputStream(FileUtils.newSafeFileOutputStream(getPackageIndexFile().get().getAsFile().toPath()))) {
+            out.writeInt(PACKAGE_INDEX_MAGIC);
+            out.writeInt(PACKAGE_INDEX_VERSION);
+            out.writeInt(entries.size());
+            for (var entry : entries) {
+                out.writeUTF(entry.getAbsolutePath());
+            }
+            out.writeInt(entriesByPackage.size());
+            for (var packageEntry : entriesByPackage.entrySet()) {
+                out.writeUTF(packageEntry.getKey());
+                out.writeInt(packageEntry.getValue().size());
+                for (var index : packageEntry.getValue()) {
+                    out.writeInt(index);
+                }
+            }
+        }
+    }
+
+    private static List<String> getPackages(File entry, Path listingCacheDirectory, Set<Path> usedListings) throws IOException {
+        if (!entry.isFile()) {
+            // Directories are cheap to probe and may change at any time, so they are not indexed
+            return List.of();
+        }
+
+        var digest = FileUtils.newSha1Digest();
+        FileUtils.updateDigest(digest, entry);
+        var listing = listingCacheDirectory.resolve(HexFormat.of().formatHex(digest.digest()) + ".txt");
+        usedListings.add(listing);
+        if (Files.exists(listing)) {
+            return Files.readAllLines(listing);
+        }
+
+        var packages = new TreeSet<String>();
+        try (var zip = new ZipFile(entry)) {
+            var zipEntries = zip.entries();
+            while (zipEntries.hasMoreElements()) {
+                var zipEntry = zipEntries.nextElement();
+                if (!zipEntry.isDirectory()) {
+                    var name = zipEntry.getName();
+                    var lastSlash = name.lastIndexOf('/');
+                    packages.add(lastSlash == -1 ? "" : name.substring(0, lastSlash));
+                }
+            }
+        }
+        var result = new ArrayList<>(packages);
+        Files.createDirectories(listing.getParent());
+        // Terminate every line, so that the root package (an empty line) survives reading the listing back
+        FileUtils.writeStringSafe(listing, result.isEmpty() ? "" : String.join("\n", result) + "\n");
+        return result;
     }
 }
@@ -51,28 +51,28 @@ public class DefaultJarJarFeature implements JarJarFeature {
             return;
         }
         this.enabled = enabled;
-        final JarJarTask task = (JarJarTask) project.getTasks().findByPath(withPrefix("jarJar"));
+        // Look the task up without realizing it, so that merely declaring jarJar dependencies stays cheap
+        if (!project.getTasks().getNames().contains(withPrefix(JAR_JAR_TASK_NAME))) {
+            return;
+        }
+        final TaskProvider<JarJarTask> task = project.getTasks().named(withPrefix(JAR_JAR_TASK_NAME), JarJarTask.class);
         Configuration runtimeElements = project.getConfigurations().findByName(withPrefix((JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME)));
-        if (task != null) {
-            if (runtimeElements != null) {
-                if (enabled) {
-                    removedFromPublication.clear();
-                    removedFromPublication.addAll(runtimeElements.getArtifacts());
-                    runtimeElements.getArtifacts().clear();
-                    project.artifacts(handler ->
-                            addedToPublication = handler.add(withPrefix(JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME), task, artifact ->
-                                    artifact.builtBy(task)
-                            )
-                    );
-                } else {
-                    runtimeElements.getArtifacts().remove(addedToPublication);
-                    runtimeElements.getArtifacts().addAll(removedFromPublication);
-                }
-            }
-            if (!task.getEnabled() == enabled) {
-                task.setEnabled(enabled);
+        if (runtimeElements != null) {
+            if (enabled) {
+                removedFromPublication.clear();
+                removedFromPublication.addAll(runtimeElements.getArtifacts());
+                runtimeElements.getArtifacts().clear();
+                project.artifacts(handler ->
+                        addedToPublication = handler.add(withPrefix(JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME), task, artifact ->
+                                artifact.builtBy(task)
+                        )
+                );
+            } else {
+                runtimeElements.getArtifacts().remove(addedToPublication);
+                runtimeElements.getArtifacts().addAll(removedFromPublication);
             }
         }
+        task.configure(t -> t.setEnabled(enabled));
     }
 
     @Override
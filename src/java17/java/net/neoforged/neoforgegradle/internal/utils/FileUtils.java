@@ -2,6 +2,7 @@ package net.neoforged.neoforgegradle.internal.utils;
 
 import org.jetbrains.annotations.ApiStatus;
 
+import java.io.File;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -11,6 +12,9 @@ import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
 
 @ApiStatus.Internal
@@ -23,6 +27,42 @@ public final class FileUtils {
     private FileUtils() {
     }
 
+    public static MessageDigest newSha1Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+
+    /**
+     * Adds the identity of a file to a digest: its absolute path, size and last modification time.
+     * This is much cheaper than hashing the content, and sufficient to detect replaced files.
+     */
+    public static void updateDigest(MessageDigest digest, File file) {
+        digest.update(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(Long.toString(file.length()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(Long.toString(file.lastModified()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * @return The hex-encoded SHA-1 hash of the file's content.
+     */
+    public static String hashFileContent(Path file) throws IOException {
+        var digest = newSha1Digest();
+        try (var in = Files.newInputStream(file)) {
+            var buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
     public static void writeStringSafe(Path destination, String content) throws IOException {
         try (var out = newSafeFileOutputStream(destination)) {
             out.write(content.getBytes(StandardCharsets.UTF_8));